@@ -0,0 +1,34 @@
+#!/bin/bash
+#
+# Runs the JMH benchmarks (see src/jmh/java) and compares the results with the recorded baseline.
+#   ./benchmark.sh                  # run all benchmarks and diff against the baseline
+#   ./benchmark.sh --baseline       # run all benchmarks and record the results as new baseline
+#   ./benchmark.sh Parser           # only run the benchmarks matching the given pattern
+#
+BASELINE=src/jmh/baseline.csv
+RESULT=target/jmh-result.csv
+
+RECORD=false
+if [ "$1" == "--baseline" ]; then
+  RECORD=true
+  shift
+fi
+
+./mvnw -B -q -Pbenchmark test-compile exec:exec \
+  -Djmh.args="$* -f 1 -wi 3 -w 2s -i 5 -r 2s -prof gc -rf csv -rff $RESULT" || exit 1
+
+if [ "$RECORD" == "true" ]; then
+  cp $RESULT $BASELINE
+  echo "Recorded new baseline in $BASELINE"
+elif [ -f $BASELINE ]; then
+  echo
+  echo "Comparison with $BASELINE (score: baseline -> current)"
+  # join both files on benchmark-name + mode + params and print the relative change of the score
+  awk -F',' '
+    FNR == 1 { next }
+    { key = $1 FS $2; for (i = 8; i <= NF; i++) key = key FS $i; gsub(/"/, "", key) }
+    NR == FNR { baseline[key] = $5; next }
+    (key in baseline) && baseline[key] > 0 {
+      printf "%-100s %14.3f -> %14.3f %s (%+.1f%%)\n", key, baseline[key], $5, $7, ($5 - baseline[key]) * 100 / baseline[key]
+    }' $BASELINE $RESULT
+fi
@@ -0,0 +1,9 @@
+#!/bin/bash
+#
+# Drives lookups at a target rate against a local dict.cc stub (see src/jmh/java/.../LoadTest.java) - i.e.
+#   ./loadtest.sh --rps 500 --duration 60 --callers 128 --latency 80 --error-rate 0.02
+#   ./loadtest.sh --pages recorded/             # replays recorded pages (<term>.html) instead of generated ones
+#   ./loadtest.sh --help                        # all options
+#
+./mvnw -B -q -Pbenchmark test-compile exec:exec \
+  -Dbenchmark.main=de.bender.dict.control.LoadTest -Djmh.args="$*"
@@ -0,0 +1,60 @@
+package de.bender.dict.control;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Produces result-pages which resemble the ones of dict.cc - i.e. some HTML and scripts before and after the two
+ * array-definitions which hold the translations
+ */
+final class DictPages {
+
+    private DictPages() { }
+
+    static byte[] page(int entries) {
+        var page = new StringBuilder();
+        page.append("<!DOCTYPE html>\n<html><head><title>dict.cc | running | Wörterbuch Englisch-Deutsch</title>\n");
+        page.append("<link rel=\"stylesheet\" href=\"/inc/styles.css\">\n".repeat(20));
+        page.append("<script>\nvar hlStr = \"\";\n");
+        page.append("var c1Arr = new Array(\"\"");
+        for (int i = 0; i < entries; i++) {
+            page.append(",\"running ").append(i).append(" {adj}\"");
+        }
+        page.append(");\nvar c2Arr = new Array(\"\"");
+        for (int i = 0; i < entries; i++) {
+            page.append(",\"laufend ").append(i).append(" - Größe \\\"klein\\\"\"");
+        }
+        page.append(");\n</script>\n</head><body>\n");
+        for (int i = 0; i < entries; i++) {
+            page.append("<tr id='tr").append(i).append("'><td class=td7nl><a href=\"/?s=running\">running</a></td>")
+                    .append("<td class=td7nl><a href=\"/?s=laufend\">laufend</a></td></tr>\n");
+        }
+        page.append("</body></html>\n");
+        return page.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * reads the pages recorded from dict.cc (i.e. via {@code curl -o haus.html 'https://deen.dict.cc/?s=haus'}) -
+     * one {@code <term>.html} per query-term
+     *
+     * @return the pages by (lower-case) term
+     */
+    static Map<String, byte[]> recorded(Path directory) throws IOException {
+        var pages = new HashMap<String, byte[]>();
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                var name = file.getFileName().toString();
+                if (name.endsWith(".html")) {
+                    pages.put(name.substring(0, name.length() - ".html".length()).toLowerCase(Locale.ROOT), Files.readAllBytes(file));
+                }
+            }
+        }
+        return pages;
+    }
+}
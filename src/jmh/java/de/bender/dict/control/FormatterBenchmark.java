@@ -0,0 +1,60 @@
+package de.bender.dict.control;
+
+import de.bender.dict.control.OutputFormatter.OutputFormat;
+import de.bender.dict.model.Translation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rendering of a translation by each of the output-formats - run with {@code -prof gc} to see the
+ * allocations per operation
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FormatterBenchmark {
+
+    @Param({"raw", "json", "alfred"})
+    OutputFormat format;
+
+    @Param({"10", "100", "1000"})
+    int entries;
+
+    OutputFormatter formatter;
+    Translation translation;
+
+    @Setup
+    public void setup() throws IOException {
+        formatter = List.of(new StandardOutputFormatter(), new JsonOutputFormatter(), new AlfredOutputFormatter())
+                .stream()
+                .filter(f -> f.canHandle(format))
+                .findFirst()
+                .orElseThrow();
+        translation = ResultParser.parse("running", new ByteArrayInputStream(DictPages.page(entries)));
+    }
+
+    @Benchmark
+    public String format() {
+        return formatter.format(translation);
+    }
+
+    /*
+     * streaming into a writer that discards everything - what's left are the costs of the rendering itself
+     */
+    @Benchmark
+    public void write() throws IOException {
+        formatter.write(translation, Writer.nullWriter());
+    }
+}
@@ -0,0 +1,320 @@
+package de.bender.dict.control;
+
+import de.bender.dict.control.StubDictServer.Faults;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+/**
+ * Drives {@link Dict.DictBuilder#build()} at a fixed rate from many concurrent callers against a local stub of
+ * dict.cc (see {@link StubDictServer}) - to size the connection-pool, the timeouts and the number of callers without
+ * hammering the real site. The requests are scheduled open-loop: the latency is measured from the time a request
+ * was due (not from the time a caller got around to sending it), so a saturated client shows up in the numbers
+ * instead of silently lowering the rate.
+ * <pre>
+ *     ./loadtest.sh --rps 500 --duration 60 --callers 128 --latency 80 --error-rate 0.02
+ * </pre>
+ */
+@Command(name = "loadtest", mixinStandardHelpOptions = true,
+        description = "Drives lookups at a target rate against a local dict.cc stub and reports throughput, latencies and allocations")
+public class LoadTest implements Callable<Integer> {
+
+    @Option(names = {"--rps"}, defaultValue = "100", description = "The target rate of lookups per second (default: ${DEFAULT-VALUE})")
+    private double rps;
+
+    @Option(names = {"--duration"}, defaultValue = "30", description = "Seconds to measure (default: ${DEFAULT-VALUE})")
+    private long durationSeconds;
+
+    @Option(names = {"--warmup"}, defaultValue = "5", description = "Seconds of load before measuring (default: ${DEFAULT-VALUE})")
+    private long warmupSeconds;
+
+    @Option(names = {"--callers"}, defaultValue = "64", description = "The number of concurrent (blocking) callers (default: ${DEFAULT-VALUE})")
+    private int callers;
+
+    @Option(names = {"--latency"}, defaultValue = "50", description = "Milliseconds the stub takes to answer at least (default: ${DEFAULT-VALUE})")
+    private long latencyMillis;
+
+    @Option(names = {"--jitter"}, defaultValue = "20", description = "The mean of the exponentially distributed milliseconds added to the latency (default: ${DEFAULT-VALUE})")
+    private long jitterMillis;
+
+    @Option(names = {"--error-rate"}, defaultValue = "0.01", description = "The share of requests answered with a 503 (default: ${DEFAULT-VALUE})")
+    private double errorRate;
+
+    @Option(names = {"--hang-rate"}, defaultValue = "0", description = "The share of requests which aren't answered at all (default: ${DEFAULT-VALUE})")
+    private double hangRate;
+
+    @Option(names = {"--pages"}, description = "A directory of recorded dict.cc pages (<term>.html) - the terms are looked up in turn")
+    private Path pages;
+
+    @Option(names = {"--terms"}, defaultValue = "1000", description = "The number of distinct terms (without recorded pages) (default: ${DEFAULT-VALUE})")
+    private int distinctTerms;
+
+    @Option(names = {"--entries"}, defaultValue = "100", description = "The number of entries of the generated pages (default: ${DEFAULT-VALUE})")
+    private int entries;
+
+    @Option(names = {"--connection-pool-size"}, defaultValue = "0", description = "See dict --connection-pool-size (default: ${DEFAULT-VALUE})")
+    private int connectionPoolSize;
+
+    @Option(names = {"--connect-timeout"}, defaultValue = "5", description = "See dict --connect-timeout (default: ${DEFAULT-VALUE})")
+    private long connectTimeout;
+
+    @Option(names = {"--request-timeout"}, defaultValue = "10", description = "See dict --request-timeout (default: ${DEFAULT-VALUE})")
+    private long requestTimeout;
+
+    @Option(names = {"--retries"}, defaultValue = "2", description = "See dict --retries (default: ${DEFAULT-VALUE})")
+    private int retries;
+
+    @Option(names = {"--hedge-delay"}, defaultValue = "0", description = "See dict --hedge-delay (default: ${DEFAULT-VALUE})")
+    private long hedgeDelay;
+
+    @Option(names = {"--circuit-breaker"}, description = "Shares a circuit-breaker between all lookups (like the server does)")
+    private boolean circuitBreaker;
+
+    @Option(names = {"--single-flight"}, description = "Coalesces concurrent lookups of the same term (like the server does)")
+    private boolean singleFlight;
+
+    @Option(names = {"--backends"}, defaultValue = "1", description = "The number of stubs (with the same faults) raced against each other (see dict --race) (default: ${DEFAULT-VALUE})")
+    private int backends;
+
+    public static void main(String[] args) {
+        System.exit(new CommandLine(new LoadTest()).execute(args));
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        HttpClients.configure(connectionPoolSize, Duration.ofMinutes(5), Duration.ofSeconds(connectTimeout));
+
+        var recorded = Objects.isNull(pages) ? Map.<String, byte[]>of() : DictPages.recorded(pages);
+        var generated = DictPages.page(entries);
+        var terms = recorded.isEmpty()
+                ? IntStream.range(0, distinctTerms).mapToObj(i -> "term" + i).toList()
+                : List.copyOf(recorded.keySet());
+        var faults = new Faults(Duration.ofMillis(latencyMillis), Duration.ofMillis(jitterMillis), errorRate, hangRate,
+                Duration.ofSeconds(requestTimeout + 1));
+
+        var stats = new LookupStats();
+        var breaker = circuitBreaker ? new CircuitBreaker(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD, CircuitBreaker.DEFAULT_OPEN_DURATION) : null;
+        var flights = singleFlight ? new SingleFlight() : null;
+        var latency = new LatencyEstimate();
+        var latencies = new LatencyHistogram();
+        var serviceTimes = new LatencyHistogram();
+        var failures = new ConcurrentHashMap<String, LongAdder>();
+        var succeeded = new LongAdder();
+
+        var servers = new ArrayList<StubDictServer>();
+        try {
+            var providers = new ArrayList<TranslationProvider>();
+            for (int i = 0; i < Math.max(1, backends); i++) {
+                var server = new StubDictServer(term -> recorded.getOrDefault(term.toLowerCase(Locale.ROOT), generated), faults);
+                servers.add(server);
+                providers.add(new DictCcProvider("stub-" + i, server.endpoint()));
+            }
+            var pool = Executors.newFixedThreadPool(callers);
+            var interval = (long) (TimeUnit.SECONDS.toNanos(1) / rps);
+            var start = System.nanoTime();
+            var measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+            var end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+            Resources before = null;
+
+            for (long i = 0; ; i++) {
+                var due = start + i * interval;
+                if (due >= end) { break; }
+                var measured = due >= measureFrom;
+                if (measured && Objects.isNull(before)) {
+                    before = Resources.snapshot();
+                }
+                LockSupport.parkNanos(due - System.nanoTime());
+
+                var term = terms.get((int) (i % terms.size()));
+                pool.execute(() -> {
+                    var begin = System.nanoTime();
+                    try {
+                        Dict.translate(term)
+                                .withProviders(providers)
+                                .withRacing(true)
+                                .withStats(stats)
+                                .withRequestTimeout(Duration.ofSeconds(requestTimeout))
+                                .withRetries(retries)
+                                .withHedgeDelay(hedgeDelay > 0 ? Duration.ofMillis(hedgeDelay) : null)
+                                .withLatencyEstimate(latency)
+                                .withCircuitBreaker(breaker)
+                                .withSingleFlight(flights)
+                                .build();
+                        if (measured) { succeeded.increment(); }
+                    } catch (Exception e) {
+                        if (measured) { failures.computeIfAbsent(e.getClass().getSimpleName(), f -> new LongAdder()).increment(); }
+                    } finally {
+                        if (measured) {
+                            var now = System.nanoTime();
+                            latencies.record(now - due);
+                            serviceTimes.record(now - begin);
+                        }
+                    }
+                });
+            }
+
+            pool.shutdown();
+            if (!pool.awaitTermination(requestTimeout * (retries + 1) + 30, TimeUnit.SECONDS)) {
+                System.err.println("Not all lookups finished in time - the numbers are incomplete");
+                pool.shutdownNow();
+            }
+            var after = Resources.snapshot();
+
+            report(Objects.requireNonNullElse(before, after), after, succeeded.sum(), failures, latencies, serviceTimes, servers, terms.size());
+            System.out.println();
+            System.out.print(stats.report());
+        } finally {
+            servers.forEach(StubDictServer::close);
+        }
+        return 0;
+    }
+
+    private void report(Resources before, Resources after, long succeeded, Map<String, LongAdder> failures,
+                        LatencyHistogram latencies, LatencyHistogram serviceTimes, List<StubDictServer> servers, int termCount) {
+        var seconds = Math.max(1, after.nanos() - before.nanos()) / 1e9;
+        var failed = failures.values().stream().mapToLong(LongAdder::sum).sum();
+        var lookups = succeeded + failed;
+
+        System.out.printf("Target:     %.1f lookups/s for %ds (after %ds warm-up) - %d callers, connection-pool %s%n",
+                rps, durationSeconds, warmupSeconds, callers, connectionPoolSize > 0 ? connectionPoolSize : "unlimited");
+        System.out.printf("Stub:       %d x %dms + ~%dms jitter, %.1f%% errors, %.1f%% hangs - %d terms, %d requests received (%d errors, %d hangs)%n",
+                servers.size(), latencyMillis, jitterMillis, errorRate * 100, hangRate * 100, termCount,
+                servers.stream().mapToLong(StubDictServer::requests).sum(), servers.stream().mapToLong(StubDictServer::errors).sum(),
+                servers.stream().mapToLong(StubDictServer::hangs).sum());
+        System.out.printf("Throughput: %.1f lookups/s (%d succeeded, %d failed)%n", lookups / seconds, succeeded, failed);
+        new TreeMap<>(failures).forEach((failure, count) -> System.out.printf("            %-30s %8d%n", failure, count.sum()));
+        System.out.printf("Allocation: %.1f MB/s - %.1f KB per lookup (%d GCs, %d ms)%n",
+                (after.allocatedBytes() - before.allocatedBytes()) / seconds / (1 << 20),
+                lookups == 0 ? 0 : (after.allocatedBytes() - before.allocatedBytes()) / (double) lookups / 1024,
+                after.gcCount() - before.gcCount(), after.gcMillis() - before.gcMillis());
+        System.out.println();
+        System.out.printf("%-30s %10s %10s %10s %10s %10s%n", "(ms)", "p50", "p90", "p99", "p99.9", "max");
+        print("latency (since due)", latencies);
+        print("service time (build())", serviceTimes);
+        System.out.println();
+        System.out.print(latencies.render());
+    }
+
+    private static void print(String name, LatencyHistogram histogram) {
+        System.out.printf("%-30s %10.2f %10.2f %10.2f %10.2f %10.2f%n", name,
+                millis(histogram.percentile(0.5)), millis(histogram.percentile(0.9)), millis(histogram.percentile(0.99)),
+                millis(histogram.percentile(0.999)), millis(histogram.max()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    /*
+     * the allocations are summed up over the live threads - so those which ended in between (i.e. idle threads of
+     * the stub) are missing, which is fine for a rate that's meant to be compared between runs
+     */
+    private record Resources(long nanos, long allocatedBytes, long gcCount, long gcMillis) {
+
+        static Resources snapshot() {
+            var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            var allocated = Arrays.stream(threads.getThreadAllocatedBytes(threads.getAllThreadIds())).filter(b -> b > 0).sum();
+            var collectors = ManagementFactory.getGarbageCollectorMXBeans();
+            return new Resources(System.nanoTime(), allocated,
+                    collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).filter(c -> c > 0).sum(),
+                    collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).filter(t -> t > 0).sum());
+        }
+    }
+
+    /**
+     * A lock-free histogram of microseconds - every power of two is split into 16 buckets, so the percentiles are off
+     * by less than 7% (unlike {@link LookupStats} it keeps all samples, which a load-test needs for its tail)
+     */
+    static class LatencyHistogram {
+        private static final int SUB_BUCKET_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            var micros = Math.max(0, nanos / 1000);
+            buckets.incrementAndGet(index(micros));
+            count.increment();
+            max.accumulateAndGet(micros, Math::max);
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        /**
+         * @return the (upper bound of the bucket of the) given percentile in microseconds
+         */
+        long percentile(double percentile) {
+            var total = count.sum();
+            if (total == 0) { return 0; }
+            var threshold = (long) Math.ceil(percentile * total);
+            var seen = 0L;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= threshold) {
+                    return Math.min(lowerBound(i + 1) - 1, max());
+                }
+            }
+            return max();
+        }
+
+        /*
+         * one line per power of two - i.e. "[  8.19,  16.38) ms"
+         */
+        String render() {
+            var rows = new long[buckets.length() / SUB_BUCKETS];
+            for (int i = 0; i < buckets.length(); i++) {
+                rows[i / SUB_BUCKETS] += buckets.get(i);
+            }
+            var widest = Arrays.stream(rows).max().orElse(0);
+            var out = new StringBuilder();
+            for (int row = 0; row < rows.length; row++) {
+                if (rows[row] == 0) { continue; }
+                out.append(String.format("[%9.2f, %9.2f) ms %10d %s%n",
+                        millis(lowerBound(row * SUB_BUCKETS)), millis(lowerBound((row + 1) * SUB_BUCKETS)),
+                        rows[row], "#".repeat((int) Math.ceil(50.0 * rows[row] / widest))));
+            }
+            return out.toString();
+        }
+
+        /*
+         * values below 16 get a bucket of their own, above that the exponent picks the row and the 4 bits below
+         * the highest one-bit pick the bucket within the row
+         */
+        static int index(long value) {
+            if (value < SUB_BUCKETS) { return (int) value; }
+            var shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+            return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+        }
+
+        static long lowerBound(int index) {
+            if (index < SUB_BUCKETS) { return index; }
+            var shift = index / SUB_BUCKETS - 1;
+            return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        }
+    }
+}
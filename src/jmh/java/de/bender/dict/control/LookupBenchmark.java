@@ -0,0 +1,46 @@
+package de.bender.dict.control;
+
+import de.bender.dict.model.Translation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end latency of a lookup via {@link Dict.DictBuilder#build()} (without cache) against a local stub server
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LookupBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int entries;
+
+    StubDictServer server;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new StubDictServer(DictPages.page(entries));
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public Translation lookup() throws IOException, InterruptedException {
+        return Dict.translate("running")
+                .withEndpoint(server.endpoint())
+                .build();
+    }
+}
@@ -0,0 +1,76 @@
+package de.bender.dict.control;
+
+import de.bender.dict.model.Translation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compares the streaming {@link ResultParser} with the previous String/regex-based parsing of the result-pages
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParserBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int entries;
+
+    byte[] page;
+
+    @Setup
+    public void setup() {
+        page = DictPages.page(entries);
+    }
+
+    @Benchmark
+    public Translation streaming() throws IOException {
+        return ResultParser.parse("running", new ByteArrayInputStream(page));
+    }
+
+    @Benchmark
+    public Translation legacy() {
+        return legacyConvert("running", new String(page, UTF_8));
+    }
+
+    /*
+     * the parser as it was before - read the whole body as String, split it into lines and process the two lines
+     */
+    static Translation legacyConvert(String queryTerm, String body) {
+        List<String> destination = new ArrayList<>();
+        List<String> source = new ArrayList<>();
+        body.lines()
+                .filter(l -> l.contains("var c1Arr") || l.contains("var c2Arr"))
+                .forEach(l -> {
+                    if (l.contains("var c1Arr")) {
+                        destination.addAll(legacyProcessResults(l));
+                    } else {
+                        source.addAll(legacyProcessResults(l));
+                    }
+                });
+        return new Translation(queryTerm, source, destination);
+    }
+
+    static List<String> legacyProcessResults(String line) {
+        var values = line.substring(line.indexOf('(') + 1, line.lastIndexOf(')'));
+        return Stream.of(values.split("\",\""))
+                .map(l -> l.replaceAll("\"", ""))
+                .filter(l -> !l.equals(""))
+                .collect(Collectors.toList());
+    }
+}
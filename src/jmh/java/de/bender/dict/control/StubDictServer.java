@@ -0,0 +1,142 @@
+package de.bender.dict.control;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A local stand-in for dict.cc - it answers every request with the page for the queried term (i.e. a recorded one,
+ * see {@link DictPages#recorded}) and can simulate a slow or flaky site (see {@link Faults})
+ */
+final class StubDictServer implements AutoCloseable {
+
+    static {
+        // otherwise the separately written headers and body run into Nagle's algorithm (~40ms per request)
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder hangs = new LongAdder();
+
+    StubDictServer(byte[] page) throws IOException {
+        this(term -> page, Faults.NONE);
+    }
+
+    /**
+     * @param pages the page to be served for the given (decoded) query-term
+     */
+    StubDictServer(Function<String, byte[]> pages, Faults faults) throws IOException {
+        this.executor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/", exchange -> {
+            try (exchange) {
+                serve(exchange, pages, faults);
+            }
+        });
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    private void serve(HttpExchange exchange, Function<String, byte[]> pages, Faults faults) throws IOException {
+        requests.increment();
+        var random = ThreadLocalRandom.current();
+        var hang = random.nextDouble() < faults.hangRate();
+        var error = !hang && random.nextDouble() < faults.errorRate();
+        if (!sleep(hang ? faults.hangDuration() : faults.latency(random))) {
+            return;
+        }
+        if (hang) {
+            hangs.increment();
+            return;         // the client should have given up by now - the connection is just dropped
+        }
+        if (error) {
+            errors.increment();
+            exchange.sendResponseHeaders(503, -1);
+            return;
+        }
+
+        var page = pages.apply(term(exchange.getRequestURI().getRawQuery()));
+        exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(200, page.length);
+        exchange.getResponseBody().write(page);
+    }
+
+    private static boolean sleep(Duration duration) {
+        if (duration.isZero()) { return true; }
+        try {
+            Thread.sleep(duration.toMillis(), duration.toNanosPart() % 1_000_000);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();         // we're shutting down
+            return false;
+        }
+    }
+
+    private static String term(String rawQuery) {
+        if (rawQuery == null) { return ""; }
+        for (String parameter : rawQuery.split("&")) {
+            if (parameter.startsWith("s=")) {
+                return URLDecoder.decode(parameter.substring(2), UTF_8);
+            }
+        }
+        return "";
+    }
+
+    /**
+     * @return an endpoint-template to be used with {@link Dict.DictBuilder#withEndpoint(String)}
+     */
+    String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/%s?s=%s";
+    }
+
+    /**
+     * @return the number of requests received (including retries and hedged requests)
+     */
+    long requests() {
+        return requests.sum();
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    long hangs() {
+        return hangs.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * The simulated behaviour of dict.cc - every response takes {@code latency} plus an exponentially distributed
+     * jitter (with the given mean), a share of the requests is answered with a 503 and another one isn't answered at
+     * all (the connection is dropped after {@code hangDuration})
+     */
+    record Faults(Duration latency, Duration jitter, double errorRate, double hangRate, Duration hangDuration) {
+
+        static final Faults NONE = new Faults(Duration.ZERO, Duration.ZERO, 0, 0, Duration.ZERO);
+
+        Duration latency(ThreadLocalRandom random) {
+            var jitterNanos = jitter.isZero() ? 0 : (long) (-Math.log(1 - random.nextDouble()) * jitter.toNanos());
+            return latency.plusNanos(jitterNanos);
+        }
+    }
+}
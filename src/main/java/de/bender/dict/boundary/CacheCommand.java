@@ -0,0 +1,133 @@
+package de.bender.dict.boundary;
+
+import de.bender.dict.control.TranslationCache;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.ParentCommand;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+@Command(name = "cache",
+        description = """
+            Manages the local translation-cache (in ~/.dict/cache.bin) - i.e. to warm it up with a word-list or to move it to another machine.
+            All options given before 'cache' (i.e. proxy- or cache-settings, --parallelism and --rate-limit) apply to these commands as well.""",
+        subcommands = { CacheCommand.WarmCommand.class, CacheCommand.ExportSnapshotCommand.class, CacheCommand.ImportSnapshotCommand.class })
+public class CacheCommand implements Runnable {
+
+    @ParentCommand
+    private DictCommand dict;
+
+    @Spec
+    private CommandSpec spec;
+
+    @Override
+    public void run() {
+        throw new CommandLine.ParameterException(spec.commandLine(), "Missing sub-command - one of: warm, export, import");
+    }
+
+    TranslationCache openCache() {
+        var cache = dict.openCache();
+        if (Objects.isNull(cache)) {
+            throw new IllegalStateException("The cache is disabled (--no-cache)");
+        }
+        return cache;
+    }
+
+    @Command(name = "warm",
+            description = """
+                Translates every line of the given word-list (use '-' to read from stdin) concurrently and keeps the results in the cache.
+                Terms which are cached already aren't looked up again (unless --refresh is given).""")
+    static class WarmCommand implements Callable<Integer> {
+
+        @ParentCommand
+        private CacheCommand cacheCommand;
+
+        @Parameters(index = "0", description = "The word-list (one term per line)")
+        private Path wordList;
+
+        @Parameters(index = "1", defaultValue = "de", description = "The source language (default: ${DEFAULT-VALUE})")
+        private String from;
+
+        @Parameters(index = "2", defaultValue = "en", description = "The target language (default: ${DEFAULT-VALUE})")
+        private String to;
+
+        @Override
+        public Integer call() throws Exception {
+            var dict = cacheCommand.dict;
+            dict.configureHttpClients();
+            dict.enableMemoryCache();
+            var cache = cacheCommand.openCache();
+            var warmed = new AtomicInteger();
+            var failures = new AtomicInteger();
+            try (var reader = "-".equals(wordList.toString())
+                    ? new BufferedReader(new InputStreamReader(System.in, UTF_8))
+                    : Files.newBufferedReader(wordList, UTF_8)) {
+                var terms = reader.lines()
+                        .map(String::strip)
+                        .filter(l -> !l.isEmpty())
+                        .iterator();
+                dict.createBatchTranslator().translate(terms,
+                        term -> dict.createDict(term, new SimpleEntry<>(from, to), cache),
+                        translation -> warmed.incrementAndGet(),
+                        (term, cause) -> {
+                            failures.incrementAndGet();
+                            System.err.println("Failed to translate '" + term + "': " + cause);
+                        });
+            } finally {
+                cache.save();
+            }
+            System.out.println("Warmed " + warmed.get() + " translations - the cache holds " + cache.size() + " now");
+            return failures.get() == 0 ? 0 : DictCommand.EXIT_CODE_FAILED_LOOKUPS;
+        }
+    }
+
+    @Command(name = "export",
+            description = "Writes a snapshot of all (not yet expired) cached translations to the given file")
+    static class ExportSnapshotCommand implements Callable<Integer> {
+
+        @ParentCommand
+        private CacheCommand cacheCommand;
+
+        @Parameters(index = "0", description = "The snapshot-file to be written")
+        private Path snapshot;
+
+        @Override
+        public Integer call() throws Exception {
+            var exported = cacheCommand.openCache().exportSnapshot(snapshot);
+            System.out.println("Exported " + exported + " translations into " + snapshot);
+            return 0;
+        }
+    }
+
+    @Command(name = "import",
+            description = "Merges the translations of a snapshot (see 'cache export') into the cache - more recent translations win")
+    static class ImportSnapshotCommand implements Callable<Integer> {
+
+        @ParentCommand
+        private CacheCommand cacheCommand;
+
+        @Parameters(index = "0", description = "The snapshot-file to be imported")
+        private Path snapshot;
+
+        @Override
+        public Integer call() throws Exception {
+            var cache = cacheCommand.openCache();
+            var imported = cache.importSnapshot(snapshot);
+            cache.save();
+            System.out.println("Imported " + imported + " translations - the cache holds " + cache.size() + " now");
+            return 0;
+        }
+    }
+}
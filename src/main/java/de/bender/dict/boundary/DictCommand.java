@@ -1,27 +1,75 @@
 package de.bender.dict.boundary;
 
+import de.bender.dict.control.BatchTranslator;
+import de.bender.dict.control.CircuitBreaker;
 import de.bender.dict.control.Dict;
+import de.bender.dict.control.Dict.DictBuilder;
+import de.bender.dict.control.Dict.Source;
+import de.bender.dict.control.DictCcProvider;
+import de.bender.dict.control.DictServer;
+import de.bender.dict.control.FuzzyIndex;
+import de.bender.dict.control.FuzzyIndex.Suggestion;
+import de.bender.dict.control.HttpClients;
+import de.bender.dict.control.LatencyEstimate;
+import de.bender.dict.control.LookupStats;
+import de.bender.dict.control.LookupStats.Phase;
+import de.bender.dict.control.MemoryCache;
+import de.bender.dict.control.OfflineDictionary;
 import de.bender.dict.control.OutputFormatter;
 import de.bender.dict.control.OutputFormatter.OutputFormat;
+import de.bender.dict.control.Prefetcher;
+import de.bender.dict.control.RateLimiter;
+import de.bender.dict.control.ResultRanker;
+import de.bender.dict.control.SingleFlight;
+import de.bender.dict.control.TranslationCache;
+import de.bender.dict.control.TranslationProvider;
+import de.bender.dict.model.MultiTranslation;
 import de.bender.dict.model.Translation;
 import io.quarkus.picocli.runtime.annotations.TopCommand;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
 
 import javax.enterprise.inject.Any;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 @TopCommand
 @Command(name = "dict", mixinStandardHelpOptions = true,
         version = "1.0.1",
-        subcommands = { Completion.class },
+        subcommands = { Completion.class, ImportCommand.class, ServeCommand.class, CacheCommand.class, ReplCommand.class },
         description = """
             A little CLI helper to make calls to 'dict.cc' in order to have a quick CLI translator - it can also be used/integrated with Alfred launcher (see supported output-formats).
             The CLI picks up HTTPS_PROXY settings and also supports proxy-authentication (via basic auth) - you can overwrite that default-behavior by explicitly setting proper proxy-options.
@@ -31,17 +79,33 @@ public class DictCommand implements Callable<Integer> {
     private static final Integer EXIT_CODE_OK = 0;
     private static final Integer EXIT_CODE_EMPTY_BODY = 123;
     private static final Integer EXIT_CODE_NO_INPUT = 120;
+    static final Integer EXIT_CODE_FAILED_LOOKUPS = 121;
+    static final List<String> SUPPORTED_LANGUAGES = List.of("de", "en", "es", "fr", "it");
+    private static final int MAX_SUGGESTIONS = 5;
+
+    /*
+     * the server does its lookups with the settings it was started with - only these options are sent along with a
+     * forwarded query, so anything else (i.e. --source, --provider or --retries) has to be done in-process
+     */
+    private static final Set<String> FORWARDED_OPTIONS = Set.of("--output", "--limit", "--bidirectional", "--refresh", "--server-port", "--session");
+
+    @Spec
+    private CommandSpec spec;
 
     @Inject
     @Any
     Instance<OutputFormatter> outputFormatter;
 
+    @Inject
+    @Any
+    Instance<TranslationProvider> translationProviders;
+
     @Parameters(description = "Query term to be translated")
     private List<String> queryTerms;
 
     @Option(names = {"-o", "--output"}, defaultValue = "raw",
             required = true,
-            description = "Determines the output-format (currently supported: raw, json, alfred)")
+            description = "Determines the output-format (currently supported: raw, json, ndjson, alfred)")
     private OutputFormat outputFormat;
 
     @Option(names = {"--proxy-host"},
@@ -60,6 +124,129 @@ public class DictCommand implements Callable<Integer> {
             description = "The password to be used for proxy-authentication")
     private String proxyPassword;
 
+    @Option(names = {"-l", "--limit"}, defaultValue = "" + ResultRanker.DEFAULT_LIMIT,
+            description = "The maximum number of results - the most relevant ones (exact matches, terms you've looked up before, short entries) come first - 0 means unlimited (default: ${DEFAULT-VALUE})")
+    private int limit;
+
+    @Option(names = {"-b", "--bidirectional"},
+            description = "Shows the matches in both languages - every entry with the side matching the term first (otherwise the side most entries matched on comes first)")
+    private boolean bidirectional;
+
+    @Option(names = {"--no-autocorrect"},
+            description = "Doesn't look up the closest known term (of the offline dictionary or the cache) if there's no translation for a misspelled one")
+    private boolean noAutocorrect;
+
+    @Option(names = {"--to"}, split = ",", paramLabel = "<language>",
+            description = "Translates into all of the given languages at once (i.e. --to en,fr,it) - the source language may precede the term (default: de)")
+    private List<String> targets;
+
+    @Option(names = {"--all-targets"},
+            description = "Translates into all supported languages (de, en, es, fr, it) at once")
+    private boolean allTargets;
+
+    @Option(names = {"--source"}, defaultValue = "auto",
+            description = "Which providers to ask: online (all but the offline dictionaries), offline (the imported dictionaries only - see 'import') or auto (the offline dictionaries first) (default: ${DEFAULT-VALUE})")
+    private Source source;
+
+    @Option(names = {"--no-cache"},
+            description = "Disables the local translation-cache (in ~/.dict/cache.bin) for this call")
+    private boolean noCache;
+
+    @Option(names = {"--refresh"},
+            description = "Ignores cached results and asks dict.cc again (the fresh result gets cached nevertheless)")
+    private boolean refresh;
+
+    @Option(names = {"--cache-ttl"}, defaultValue = "168",
+            description = "Time-to-live of cached translations in hours (default: ${DEFAULT-VALUE})")
+    private long cacheTtlHours;
+
+    @Option(names = {"--cache-size"}, defaultValue = "10000",
+            description = "Maximum number of cached translations - the least recently used ones get evicted (default: ${DEFAULT-VALUE})")
+    private int cacheSize;
+
+    @Option(names = {"--memory-cache-size"}, defaultValue = "32",
+            description = "Maximum size (in MB) of the translations kept in memory by long-running lookups (server, batch, repl, cache warm) - 0 disables it (default: ${DEFAULT-VALUE})")
+    private long memoryCacheSize;
+
+    @Option(names = {"--stale-while-revalidate"}, defaultValue = "60",
+            description = "Minutes an expired translation in memory is still answered with - while it gets refreshed in the background (default: ${DEFAULT-VALUE})")
+    private long staleWhileRevalidate;
+
+    @Option(names = {"--batch"}, paramLabel = "<file>",
+            description = "Translates every line of the given file (use '-' to read from stdin) - results are printed in input order")
+    private Path batchFile;
+
+    @Option(names = {"--parallelism"}, defaultValue = "4",
+            description = "The maximum number of concurrent requests in batch-mode (default: ${DEFAULT-VALUE})")
+    private int parallelism;
+
+    @Option(names = {"--rate-limit"}, defaultValue = "10",
+            description = "The maximum number of requests per second sent to dict.cc (retries and hedges included) - lookups answered by the caches or the offline dictionaries don't count - 0 means unlimited (default: ${DEFAULT-VALUE})")
+    private double rateLimit;
+
+    @Option(names = {"--provider"}, split = ",", paramLabel = "<provider>", defaultValue = DictCcProvider.NAME,
+            description = "The providers asked for translations (i.e. --provider offline,dictcc) - one after another as long as they don't know the term (default: ${DEFAULT-VALUE})")
+    private List<String> providerNames;
+
+    @Option(names = {"--race"},
+            description = "Asks all providers (see --provider) concurrently - the first non-empty translation wins")
+    private boolean race;
+
+    @Option(names = {"--merge-within"}, defaultValue = "0",
+            description = "Merges the translations of all providers which answered within the given milliseconds (implies --race) - 0 disables merging (default: ${DEFAULT-VALUE})")
+    private long mergeWithin;
+
+    @Option(names = {"--connection-pool-size"}, defaultValue = "0",
+            description = "The maximum number of pooled (keep-alive) connections - 0 means unlimited (default: ${DEFAULT-VALUE})")
+    private int connectionPoolSize;
+
+    @Option(names = {"--connection-idle-timeout"}, defaultValue = "300",
+            description = "Seconds an idle connection is kept open for re-use (default: ${DEFAULT-VALUE})")
+    private long connectionIdleTimeout;
+
+    @Option(names = {"--connect-timeout"}, defaultValue = "5",
+            description = "Seconds establishing a connection to dict.cc (or the proxy) may take (default: ${DEFAULT-VALUE})")
+    private long connectTimeout;
+
+    @Option(names = {"--request-timeout"}, defaultValue = "10",
+            description = "Seconds a single request to dict.cc may take (default: ${DEFAULT-VALUE})")
+    private long requestTimeout;
+
+    @Option(names = {"--retries"}, defaultValue = "2",
+            description = "The number of retries (with exponential backoff) after timeouts, I/O-errors and 429/5xx responses (default: ${DEFAULT-VALUE})")
+    private int retries;
+
+    @Option(names = {"--hedge-delay"}, defaultValue = "0",
+            description = "Sends a second request if the first one didn't answer within the usual latency of dict.cc - the moving average of the previous requests plus twice their mean deviation (or the given milliseconds for the first 20 requests) - 0 disables hedging (default: ${DEFAULT-VALUE})")
+    private long hedgeDelay;
+
+    @Option(names = {"--server-port"}, defaultValue = "" + DictServer.DEFAULT_PORT,
+            description = "The (localhost) port of the dict-server - see 'serve' (default: ${DEFAULT-VALUE})")
+    private int serverPort;
+
+    @Option(names = {"--session"}, paramLabel = "<id>",
+            description = "Marks forwarded lookups as keystrokes of one typing client (i.e. Alfred) - the server cancels the superseded ones of the same session")
+    private String session;
+
+    @Option(names = {"--no-server"},
+            description = "Always translates in-process - even if there is a dict-server running")
+    private boolean noServer;
+
+    @Option(names = {"--stats"},
+            description = "Prints a breakdown of the time spent in the phases of the lookup(s) to stderr (implies --no-server)")
+    private boolean printStats;
+
+    private LookupStats stats = LookupStats.DISABLED;
+    private ResultRanker ranker;
+    private volatile List<TranslationProvider> providers;
+    private final Map<String, FuzzyIndex> fuzzyIndexes = new ConcurrentHashMap<>();
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD, CircuitBreaker.DEFAULT_OPEN_DURATION);
+    private final SingleFlight singleFlight = new SingleFlight();
+    private final LatencyEstimate latency = new LatencyEstimate();
+    private RateLimiter rateLimiter;
+    private MemoryCache memoryCache;
+    private Writer stdout;
+
     /**
      * The main {@code call}-method which gets executed whenever the CLI command is called
      *
@@ -68,16 +255,245 @@ public class DictCommand implements Callable<Integer> {
      */
     @Override
     public Integer call() throws Exception {
-        if (Objects.isNull(queryTerms)) { return EXIT_CODE_NO_INPUT; }
+        if (Objects.isNull(queryTerms) && Objects.isNull(batchFile)) { return EXIT_CODE_NO_INPUT; }
+
+        configureHttpClients();
 
+        var terms = Optional.ofNullable(queryTerms).orElseGet(ArrayList::new);
+        var fanOut = Objects.nonNull(targets) || allTargets;
+        if (fanOut && Objects.nonNull(batchFile)) {
+            throw new IllegalStateException("--to and --all-targets can't be combined with --batch");
+        }
+        var fromTo = fanOut
+                ? new SimpleEntry<>(determineSourceLanguage(terms), "")
+                : determineLanguageCombination(terms, Objects.nonNull(batchFile) ? 2 : 3);      // extract the language instructions (if present)
+
+        if (printStats) {
+            enableStats();
+        }
+
+        // if there is a dict-server running we let it do the work (it's already warmed up)
+        if (forwardable()) {
+            var forwarded = DictServer.forward(serverPort, session, String.join(" ", terms), fromTo.getKey(), fromTo.getValue(), outputFormat, limit, bidirectional, refresh);
+            if (forwarded.isPresent()) {
+                System.out.println(forwarded.get());
+                return EXIT_CODE_OK;
+            }
+        }
+
+        if (Objects.nonNull(batchFile)) {
+            enableMemoryCache();
+        }
+        var cache = openCache();
+
+        try {
+            var exitCode = Objects.nonNull(batchFile)
+                    ? translateBatch(fromTo, cache)
+                    : fanOut
+                        ? translateFanOut(String.join(" ", terms), fromTo.getKey(), cache)
+                        : translateSingle(String.join(" ", terms), fromTo, cache);      // concatenate the words to form a phrase
+
+            if (Objects.nonNull(cache)) {
+                cache.save();
+            }
+            return exitCode;
+        } finally {
+            if (printStats) {
+                System.err.println();
+                System.err.print(report());
+            }
+        }
+    }
+
+    private Integer translateSingle(String queryTerm, SimpleEntry<String, String> fromTo, TranslationCache cache) throws Exception {
+        // create a Dict-instance and trigger the translation
+        Translation translation = translate(queryTerm, fromTo, cache, refresh);
+
+        print(translation);
+        return EXIT_CODE_OK;
+    }
+
+    /*
+     * the lookups for all target languages are sent concurrently - so it takes about as long as the slowest of them
+     */
+    private Integer translateFanOut(String queryTerm, String from, TranslationCache cache) {
+        var lookups = new LinkedHashMap<String, CompletableFuture<Translation>>();
+        for (String to : allTargets ? SUPPORTED_LANGUAGES : targets) {
+            if (!SUPPORTED_LANGUAGES.contains(to)) {
+                throw new IllegalStateException("Unsupported language '" + to + "' - supported are " + SUPPORTED_LANGUAGES);
+            }
+            if (!to.equals(from)) {
+                lookups.put(to, createDict(queryTerm, new SimpleEntry<>(from, to), cache).buildAsync());
+            }
+        }
+
+        var translations = new LinkedHashMap<String, Translation>();
+        var failures = 0;
+        for (var lookup : lookups.entrySet()) {
+            try {
+                translations.put(lookup.getKey(), lookup.getValue().join());
+            } catch (CompletionException e) {
+                failures++;
+                System.err.println("Failed to translate '" + queryTerm + "' into " + lookup.getKey() + ": " + e.getCause());
+            }
+        }
+        print(new MultiTranslation(queryTerm, from, translations));
+        return failures == 0 ? EXIT_CODE_OK : EXIT_CODE_FAILED_LOOKUPS;
+    }
+
+    /*
+     * reads the terms line by line (from the given file or stdin) and translates them concurrently - the results
+     * are printed in input order nevertheless
+     */
+    private Integer translateBatch(SimpleEntry<String, String> fromTo, TranslationCache cache) throws Exception {
+        var failures = new AtomicInteger();
+        try (var reader = "-".equals(batchFile.toString())
+                ? new BufferedReader(new InputStreamReader(System.in, UTF_8))
+                : Files.newBufferedReader(batchFile, UTF_8)) {
+            var terms = reader.lines()
+                    .map(String::strip)
+                    .filter(l -> !l.isEmpty())
+                    .iterator();
+
+            // a batch of plain JSON becomes one array - NDJSON (and the others) just get one result per line
+            var asArray = OutputFormat.json.equals(outputFormat);
+            var printed = new AtomicInteger();
+            createBatchTranslator().translate(terms,
+                    term -> createDict(term, fromTo, cache),
+                    translation -> print(!asArray ? "" : printed.getAndIncrement() == 0 ? "[\n" : ",\n",
+                            translation, asArray ? "" : "\n"),
+                    (term, cause) -> {
+                        failures.incrementAndGet();
+                        System.err.println("Failed to translate '" + term + "': " + cause);
+                    });
+            if (asArray) {
+                stdout().write(printed.get() == 0 ? "[]\n" : "\n]\n");
+                stdout().flush();
+            }
+        }
+        return failures.get() == 0 ? EXIT_CODE_OK : EXIT_CODE_FAILED_LOOKUPS;
+    }
+
+    void configureHttpClients() {
         // required in >= JDK8 to make basic-auth for proxies work
         System.setProperty("jdk.http.auth.tunneling.disabledSchemes", "");
+        HttpClients.configure(connectionPoolSize, Duration.ofSeconds(connectionIdleTimeout), Duration.ofSeconds(connectTimeout));
+        rateLimiter = new RateLimiter(rateLimit);       // shared by all lookups - just like the connections
+    }
 
-        var fromTo = determineLanguageCombination(queryTerms);      // extract the language instructions (if present)
-        var queryTerm = String.join(" ", queryTerms);      // now concatenate the words to form a phrase
+    BatchTranslator createBatchTranslator() {
+        return new BatchTranslator(parallelism);
+    }
 
-        // create a Dict-instance and trigger the translation
-        Translation translation = Dict
+    /*
+     * prefetches run with the same limits as batch-mode (--parallelism - and --rate-limit, which paces all lookups)
+     */
+    Prefetcher createPrefetcher(Function<String, CompletableFuture<Translation>> lookup, Predicate<String> known) {
+        return new Prefetcher(lookup, known, parallelism, stats);
+    }
+
+    Translation translate(String queryTerm, SimpleEntry<String, String> fromTo, TranslationCache cache, boolean refresh) throws Exception {
+        return autocorrect(queryTerm, createDict(queryTerm, fromTo, cache).withRefresh(refresh).build(), fromTo, cache, refresh);
+    }
+
+    /*
+     * if there's no translation for the term we try the closest known term instead - as long as that's unambiguous.
+     * Otherwise the similar terms come along as suggestions (the formatters show them).
+     */
+    Translation autocorrect(String queryTerm, Translation translation, SimpleEntry<String, String> fromTo, TranslationCache cache, boolean refresh) throws Exception {
+        if (translation.hasResults()) {
+            var index = fuzzyIndexes.get(fromTo.getKey() + fromTo.getValue());
+            if (Objects.nonNull(index)) {
+                index.add(queryTerm);       // a long-running server learns the terms it translated
+            }
+            return translation;
+        }
+
+        var suggestions = suggest(queryTerm, fromTo, cache);
+        var unambiguous = suggestions.size() == 1 || suggestions.size() > 1 && suggestions.get(0).distance() < suggestions.get(1).distance();
+        if (!noAutocorrect && unambiguous) {
+            var corrected = createDict(suggestions.get(0).term(), fromTo, cache).withRefresh(refresh).build();
+            if (corrected.hasResults()) {
+                return corrected.withCorrectedFrom(queryTerm);
+            }
+        }
+        return translation.withSuggestions(suggestions.stream().map(Suggestion::term).toList());
+    }
+
+    /*
+     * the terms of the offline dictionary (if there is one) and the ones we've already translated successfully
+     */
+    private List<Suggestion> suggest(String queryTerm, SimpleEntry<String, String> fromTo, TranslationCache cache) {
+        var index = fuzzyIndexes.computeIfAbsent(fromTo.getKey() + fromTo.getValue(), languages -> {
+            var fuzzyIndex = OfflineDictionary.fuzzyIndex(OfflineDictionary.DEFAULT_LOCATION, fromTo.getKey(), fromTo.getValue());
+            if (Objects.nonNull(cache)) {
+                cache.knownTerms(fromTo.getKey(), fromTo.getValue()).forEach(fuzzyIndex::add);
+            }
+            return fuzzyIndex;
+        });
+        return index.suggest(queryTerm, FuzzyIndex.MAX_DISTANCE, MAX_SUGGESTIONS);
+    }
+
+    /*
+     * single lookups are forwarded as long as nothing but the options the server honors were given (--batch, --to,
+     * --no-cache or --stats aren't among them either)
+     */
+    private boolean forwardable() {
+        return !noServer && spec.commandLine().getParseResult().matchedOptions().stream()
+                .allMatch(option -> FORWARDED_OPTIONS.contains(option.longestName()));
+    }
+
+    /*
+     * the results get ranked by the usage recorded in the cache as well - so the ranker is set up along with it
+     */
+    TranslationCache openCache() {
+        var cache = !noCache
+                ? TranslationCache.open(TranslationCache.DEFAULT_LOCATION, cacheSize, Duration.ofHours(cacheTtlHours))
+                : null;
+        ranker = new ResultRanker(limit, Objects.nonNull(cache) ? cache::usage : ResultRanker.Usage.NONE).withBidirectional(bidirectional);
+        return cache;
+    }
+
+    /**
+     * keeps the translations in memory as well (in front of the cache on disk) - that only pays off for the
+     * long-running modes (server, batch, repl and warm), a single lookup would just pay for setting it up
+     */
+    void enableMemoryCache() {
+        memoryCache = !noCache && memoryCacheSize > 0
+                ? new MemoryCache(memoryCacheSize << 20, Duration.ofHours(cacheTtlHours), Duration.ofMinutes(staleWhileRevalidate))
+                : null;
+    }
+
+    /**
+     * @return the stats of the lookups (see {@link #enableStats}) and of the translations kept in memory
+     */
+    String report() {
+        return stats.report() + (Objects.nonNull(memoryCache) ? memoryCache.report() : "");
+    }
+
+    LookupStats enableStats() {
+        this.stats = new LookupStats();
+        return this.stats;
+    }
+
+    int serverPort() {
+        return serverPort;
+    }
+
+    OutputFormat outputFormat() {
+        return outputFormat;
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    boolean bidirectional() {
+        return bidirectional;
+    }
+
+    DictBuilder createDict(String queryTerm, SimpleEntry<String, String> fromTo, TranslationCache cache) {
+        return Dict
                 .translate(queryTerm)
                 .from(fromTo.getKey())
                 .to(fromTo.getValue())
@@ -85,23 +501,128 @@ public class DictCommand implements Callable<Integer> {
                 .withProxyPort(proxyPort)
                 .withProxyUser(proxyUser)
                 .withProxyPass(Optional.ofNullable(proxyPassword).map(String::toCharArray).orElse(null))
-                .build();
+                .withCache(cache)
+                .withMemoryCache(memoryCache)
+                .withRefresh(refresh)
+                .withSource(source)
+                .withStats(stats)
+                .withRequestTimeout(Duration.ofSeconds(requestTimeout))
+                .withRetries(retries)
+                .withHedgeDelay(hedgeDelay > 0 ? Duration.ofMillis(hedgeDelay) : null)
+                .withLatencyEstimate(latency)
+                .withCircuitBreaker(circuitBreaker)
+                .withRateLimiter(rateLimiter)
+                .withSingleFlight(singleFlight)
+                .withProviders(providers())
+                .withRacing(race)
+                .withMergeBudget(mergeWithin > 0 ? Duration.ofMillis(mergeWithin) : null);
+    }
+
+    /*
+     * resolves the chosen providers (by their names) among the ones available as CDI-beans
+     */
+    private List<TranslationProvider> providers() {
+        if (Objects.isNull(providers)) {
+            var available = new LinkedHashMap<String, TranslationProvider>();
+            translationProviders.forEach(provider -> available.put(provider.name(), provider));
+            providers = providerNames.stream()
+                    .map(name -> Optional.ofNullable(available.get(name))
+                            .orElseThrow(() -> new IllegalStateException("Unknown provider '" + name + "' - available are " + available.keySet())))
+                    .toList();
+        }
+        return providers;
+    }
 
-        outputFormatter.stream()
-                .filter(f -> f.canHandle(outputFormat))
-                .map(f -> f.format(translation))
-                .forEach(System.out::println);
+    private void print(Translation translation) {
+        print("", translation, "\n");
+    }
 
-        return EXIT_CODE_OK;
+    private void print(MultiTranslation translations) {
+        try {
+            var out = stdout();
+            var ranked = ranker(limit, bidirectional).rank(translations);
+            render(outputFormat, out, formatter -> formatter.write(ranked, out));
+            out.write("\n");
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * every result gets flushed right away - so it shows up as soon as it's there (i.e. when piped into jq)
+     */
+    private void print(String prefix, Translation translation, String suffix) {
+        try {
+            var out = stdout();
+            out.write(prefix);
+            write(translation, outputFormat, limit, bidirectional, out);
+            out.write(suffix);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Writer stdout() {
+        if (Objects.isNull(stdout)) {
+            stdout = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), UTF_8), 1 << 16);
+        }
+        return stdout;
+    }
+
+    String format(Translation translation, OutputFormat format, int limit, boolean bidirectional) {
+        var out = new StringWriter();
+        try {
+            write(translation, format, limit, bidirectional, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);      // can't happen with a StringWriter
+        }
+        return out.toString();
+    }
+
+    void write(Translation translation, OutputFormat format, int limit, boolean bidirectional, Writer out) throws IOException {
+        var ranked = rank(translation, limit, bidirectional);
+        render(format, out, formatter -> formatter.write(ranked, out));
+    }
+
+    Translation rank(Translation translation, int limit, boolean bidirectional) {
+        return ranker(limit, bidirectional).rank(translation);
+    }
+
+    /*
+     * lookups forwarded to the server may ask for another limit (or direction) than the server was started with
+     */
+    private ResultRanker ranker(int limit, boolean bidirectional) {
+        var limited = limit == this.limit ? ranker : ranker.withLimit(limit);
+        return bidirectional == this.bidirectional ? limited : limited.withBidirectional(bidirectional);
+    }
+
+    private void render(OutputFormat format, Writer out, Rendering rendering) throws IOException {
+        var start = System.nanoTime();
+        var separator = "";
+        for (var formatter : outputFormatter) {
+            if (formatter.canHandle(format)) {
+                out.write(separator);
+                rendering.render(formatter);
+                separator = "\n";
+            }
+        }
+        stats.record(Phase.format, System.nanoTime() - start);
+    }
+
+    @FunctionalInterface
+    private interface Rendering {
+        void render(OutputFormatter formatter) throws IOException;
     }
 
     /*
      * depending on whether the user put in some dedicated source/destination language pairs we either return
      * the default (which is de<>en) or we create a combination if the passed in parameters are supported.
+     * In batch-mode the language pair may be the only parameters given - otherwise there has to be a term as well.
      */
-    private SimpleEntry<String, String> determineLanguageCombination(List<String> queryTerms) {
-        var supportedLanguages = List.of("de", "en", "es", "fr", "it");
-        if (queryTerms.size() > 2 && supportedLanguages.contains(queryTerms.get(0)) && supportedLanguages.contains(queryTerms.get(1))) {
+    private SimpleEntry<String, String> determineLanguageCombination(List<String> queryTerms, int minimumTerms) {
+        if (queryTerms.size() >= minimumTerms && SUPPORTED_LANGUAGES.contains(queryTerms.get(0)) && SUPPORTED_LANGUAGES.contains(queryTerms.get(1))) {
             var result = new SimpleEntry<>(queryTerms.get(0),  queryTerms.get(1));
             queryTerms.remove(0);
             queryTerms.remove(0);
@@ -111,4 +632,13 @@ public class DictCommand implements Callable<Integer> {
         }
     }
 
+    /*
+     * with several target languages only the source language may precede the term (de by default)
+     */
+    private String determineSourceLanguage(List<String> queryTerms) {
+        return queryTerms.size() >= 2 && SUPPORTED_LANGUAGES.contains(queryTerms.get(0))
+                ? queryTerms.remove(0)
+                : "de";
+    }
+
 }
@@ -0,0 +1,31 @@
+package de.bender.dict.boundary;
+
+import de.bender.dict.control.OfflineDictionary;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Parameters;
+
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+@Command(name = "import",
+        description = """
+            Imports a vocabulary-export of dict.cc (see https://www.dict.cc/?s=about%3Awordlist) for offline lookups.
+            The languages have to be given in the order of the columns of the export (i.e. 'de en' for a DE-EN export).""")
+public class ImportCommand implements Callable<Integer> {
+
+    @Parameters(index = "0", description = "The tab-separated vocabulary file to be imported")
+    private Path vocabulary;
+
+    @Parameters(index = "1", defaultValue = "de", description = "The language of the first column (default: ${DEFAULT-VALUE})")
+    private String from;
+
+    @Parameters(index = "2", defaultValue = "en", description = "The language of the second column (default: ${DEFAULT-VALUE})")
+    private String to;
+
+    @Override
+    public Integer call() throws Exception {
+        var pairs = OfflineDictionary.importVocabulary(vocabulary, OfflineDictionary.DEFAULT_LOCATION, from, to);
+        System.out.println("Imported " + pairs + " translations into " + OfflineDictionary.DEFAULT_LOCATION);
+        return 0;
+    }
+}
@@ -0,0 +1,222 @@
+package de.bender.dict.boundary;
+
+import de.bender.dict.control.OutputFormatter.OutputFormat;
+import de.bender.dict.control.Prefetcher;
+import de.bender.dict.control.TranslationCache;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.ParentCommand;
+import picocli.CommandLine.Parameters;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+@Command(name = "repl",
+        description = """
+            Starts an interactive session which translates one query per line - the HTTP-connections, the cache and the settings stay warm in between.
+            The entries of every result are prefetched in the background (see --parallelism and --rate-limit), so the next lookup is likely answered right away.
+            Type ':help' for the commands of the session - use 'rlwrap dict repl' for line-editing.
+            All options given before 'repl' (i.e. proxy- or cache-settings, -o, --limit) apply to the session.""")
+public class ReplCommand implements Runnable {
+
+    static final Path HISTORY_LOCATION = Path.of(System.getProperty("user.home"), ".dict", "history");
+    private static final int MAX_HISTORY = 500;
+    private static final String HELP = """
+            <term>              translates the term (in the current language pair)
+            :lang <from> <to>   switches the language pair (i.e. :lang en fr)
+            :swap               swaps the languages of the current pair
+            :format <format>    switches the output-format (raw, json, ndjson, alfred)
+            :limit <n>          shows at most n results (0 means unlimited)
+            :history            lists the previous queries - !! repeats the last one, !<n> the n-th one
+            :stats              prints a breakdown of the lookups of this session
+            :quit               ends the session (so does Ctrl-D)""";
+
+    @ParentCommand
+    private DictCommand dict;
+
+    @Parameters(index = "0", defaultValue = "de", description = "The source language (default: ${DEFAULT-VALUE})")
+    private String from;
+
+    @Parameters(index = "1", defaultValue = "en", description = "The target language (default: ${DEFAULT-VALUE})")
+    private String to;
+
+    private final List<String> history = new ArrayList<>();
+    private volatile SimpleEntry<String, String> fromTo;
+    private OutputFormat format;
+    private int limit;
+
+    @Override
+    public void run() {
+        dict.configureHttpClients();
+        dict.enableStats();
+        dict.enableMemoryCache();
+        var cache = Objects.requireNonNullElseGet(dict.openCache(),
+                () -> TranslationCache.inMemory(TranslationCache.DEFAULT_MAX_ENTRIES, TranslationCache.DEFAULT_TTL));
+        fromTo = languages(from, to);
+        format = dict.outputFormat();
+        limit = dict.limit();
+        loadHistory();
+
+        var interactive = Objects.nonNull(System.console());
+        var out = new BufferedWriter(new OutputStreamWriter(System.out, UTF_8));
+        // Ctrl-C ends the session as well - the cache shouldn't get lost then
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> save(cache)));
+
+        try (var prefetcher = dict.createPrefetcher(
+                term -> dict.createDict(term, fromTo, cache).buildAsync(),
+                term -> cache.getStale(fromTo.getKey(), fromTo.getValue(), term).isPresent());
+             var in = new BufferedReader(new InputStreamReader(System.in, UTF_8))) {
+            if (interactive) {
+                out.write("Type :help for the available commands\n");
+            }
+            while (true) {
+                prompt(out, interactive);
+                var line = in.readLine();
+                if (Objects.isNull(line)) { break; }
+
+                var input = recall(line.strip());
+                if (input.isEmpty()) { continue; }
+                if (":quit".equals(input) || ":q".equals(input)) { break; }
+
+                remember(input);
+                try {
+                    if (input.startsWith(":")) {
+                        command(input, out);
+                    } else {
+                        translate(input, cache, prefetcher, out);
+                    }
+                } catch (Exception e) {
+                    System.err.println(input.startsWith(":") ? e.getMessage() : "Failed to translate '" + input + "': " + e);
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read the input: " + e);
+        }
+    }
+
+    private void translate(String query, TranslationCache cache, Prefetcher prefetcher, Writer out) throws Exception {
+        var translation = dict.translate(query, fromTo, cache, false);
+        dict.write(translation, format, limit, dict.bidirectional(), out);
+        out.write("\n");
+        out.flush();
+        prefetcher.prefetch(dict.rank(translation, limit, dict.bidirectional()), Prefetcher.DEFAULT_LIMIT);
+    }
+
+    private void command(String input, Writer out) throws IOException {
+        var arguments = input.split("\\s+");
+        switch (arguments[0]) {
+            case ":lang" -> {
+                if (arguments.length != 3) { throw new IllegalArgumentException("Usage: :lang <from> <to>"); }
+                fromTo = languages(arguments[1], arguments[2]);
+            }
+            case ":swap" -> fromTo = new SimpleEntry<>(fromTo.getValue(), fromTo.getKey());
+            case ":format" -> format = outputFormat(argument(arguments, "Usage: :format <raw|json|ndjson|alfred>"));
+            case ":limit" -> limit = Integer.parseInt(argument(arguments, "Usage: :limit <n>"));
+            case ":history" -> {
+                for (int i = 0; i < history.size(); i++) {
+                    out.write(String.format("%4d  %s%n", i + 1, history.get(i)));
+                }
+            }
+            case ":stats" -> out.write(dict.report());
+            case ":help" -> out.write(HELP + "\n");
+            default -> throw new IllegalArgumentException("Unknown command '" + arguments[0] + "' - type :help for the available commands");
+        }
+    }
+
+    private static String argument(String[] arguments, String usage) {
+        if (arguments.length != 2) { throw new IllegalArgumentException(usage); }
+        return arguments[1];
+    }
+
+    private static OutputFormat outputFormat(String name) {
+        try {
+            return OutputFormat.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported output-format '" + name + "' - supported are " + List.of(OutputFormat.values()));
+        }
+    }
+
+    private static SimpleEntry<String, String> languages(String from, String to) {
+        from = from.toLowerCase(Locale.ROOT);
+        to = to.toLowerCase(Locale.ROOT);
+        if (!DictCommand.SUPPORTED_LANGUAGES.contains(from) || !DictCommand.SUPPORTED_LANGUAGES.contains(to) || from.equals(to)) {
+            throw new IllegalArgumentException("Unsupported language pair " + from + "/" + to + " - supported are " + DictCommand.SUPPORTED_LANGUAGES);
+        }
+        return new SimpleEntry<>(from, to);
+    }
+
+    private void prompt(Writer out, boolean interactive) throws IOException {
+        if (interactive) {
+            out.write(fromTo.getKey() + "->" + fromTo.getValue() + "> ");
+            out.flush();
+        }
+    }
+
+    /*
+     * expands !! (the last query) and !<n> (the n-th query of the history)
+     */
+    private String recall(String input) {
+        if (!input.startsWith("!") || input.length() < 2 || history.isEmpty()) {
+            return input;
+        }
+        if ("!!".equals(input)) {
+            return history.get(history.size() - 1);
+        }
+        try {
+            var index = Integer.parseInt(input.substring(1));
+            return index >= 1 && index <= history.size() ? history.get(index - 1) : input;
+        } catch (NumberFormatException e) {
+            return input;
+        }
+    }
+
+    private void loadHistory() {
+        try {
+            if (Files.isReadable(HISTORY_LOCATION)) {
+                var lines = Files.readAllLines(HISTORY_LOCATION, UTF_8);
+                history.addAll(lines.subList(Math.max(0, lines.size() - MAX_HISTORY), lines.size()));
+                if (lines.size() > 2 * MAX_HISTORY) {
+                    Files.write(HISTORY_LOCATION, history, UTF_8);      // the file is appended to - so we trim it now and then
+                }
+            }
+        } catch (IOException e) {
+            // we'll just start with an empty history
+        }
+    }
+
+    private void remember(String input) {
+        if (!history.isEmpty() && history.get(history.size() - 1).equals(input)) {
+            return;
+        }
+        history.add(input);
+        try {
+            Files.createDirectories(HISTORY_LOCATION.getParent());
+            Files.writeString(HISTORY_LOCATION, input + "\n", UTF_8, CREATE, APPEND);
+        } catch (IOException e) {
+            // not being able to persist the history is no reason to stop the session
+        }
+    }
+
+    private static void save(TranslationCache cache) {
+        try {
+            cache.save();
+        } catch (IOException e) {
+            System.err.println("Failed to save the cache: " + e);
+        }
+    }
+}
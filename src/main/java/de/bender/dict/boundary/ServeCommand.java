@@ -0,0 +1,77 @@
+package de.bender.dict.boundary;
+
+import de.bender.dict.control.DictServer;
+import de.bender.dict.control.IncrementalLookup;
+import de.bender.dict.control.OutputFormatter.OutputFormat;
+import de.bender.dict.control.TranslationCache;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParentCommand;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@Command(name = "serve",
+        description = """
+            Starts a long-running server (on localhost) which keeps HTTP-connections and caches warm.
+            The statistics of all lookups are available via http://127.0.0.1:<port>/stats.
+            As long as it's running, every other invocation of 'dict' forwards its lookups to that server (see --server-port and --no-server).
+            Lookups in the alfred-format are treated as as-you-type queries - they get answered from the results of shorter queries (as long as dict.cc takes longer than --patience).
+            All options given before 'serve' (i.e. proxy- or cache-settings) apply to the lookups of the server.""")
+public class ServeCommand implements Callable<Integer> {
+
+    private static final long CACHE_SAVE_INTERVAL_SECONDS = 60;
+
+    @ParentCommand
+    private DictCommand dict;
+
+    @Option(names = {"--patience"}, defaultValue = "150",
+            description = "Milliseconds an as-you-type lookup waits for dict.cc before it's answered from the results of shorter queries (default: ${DEFAULT-VALUE})")
+    private long patienceMillis;
+
+    @Override
+    public Integer call() throws Exception {
+        dict.configureHttpClients();
+        dict.enableMemoryCache();
+        var cache = dict.openCache();
+        var stats = dict.enableStats();
+        var cacheWriter = Executors.newSingleThreadScheduledExecutor();
+        var stopped = new CountDownLatch(1);
+
+        var incremental = new IncrementalLookup((query, from, to) ->
+                dict.createDict(query, new SimpleEntry<>(from, to), cache).buildAsync(), Duration.ofMillis(patienceMillis), stats);
+
+        try (var server = DictServer.start(dict.serverPort(), (session, query, from, to, format, limit, bidirectional, refresh) ->
+                dict.format(OutputFormat.alfred.equals(format) && !refresh
+                        ? dict.autocorrect(query, incremental.lookup(session, query, from, to), new SimpleEntry<>(from, to), cache, false)
+                        : dict.translate(query, new SimpleEntry<>(from, to), cache, refresh), format, limit, bidirectional),
+                dict::report)) {
+            if (Objects.nonNull(cache)) {
+                cacheWriter.scheduleWithFixedDelay(() -> save(cache), CACHE_SAVE_INTERVAL_SECONDS, CACHE_SAVE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                if (Objects.nonNull(cache)) { save(cache); }
+                stopped.countDown();
+            }));
+            System.err.println("dict is listening on 127.0.0.1:" + server.port() + " (stop it with Ctrl+C)");
+            stopped.await();
+        } finally {
+            cacheWriter.shutdownNow();
+        }
+        return 0;
+    }
+
+    private static void save(TranslationCache cache) {
+        try {
+            cache.save();
+        } catch (IOException e) {
+            System.err.println("Failed to save the cache: " + e);
+        }
+    }
+}
@@ -1,45 +1,116 @@
 package de.bender.dict.control;
 
+import de.bender.dict.model.MultiTranslation;
 import de.bender.dict.model.Translation;
 
 import javax.enterprise.context.ApplicationScoped;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Objects;
 
 import static de.bender.dict.control.OutputFormatter.OutputFormat.alfred;
 
 @ApplicationScoped
 public class AlfredOutputFormatter implements OutputFormatter {
 
-    private static final int MAX_RESULTS = 20;
-
     @Override
     public boolean canHandle(OutputFormat format) {
         return alfred.equals(format);
     }
 
     @Override
-    public String format(Translation translation) {
-        StringBuilder out = new StringBuilder();
+    public void write(Translation translation, Writer out) throws IOException {
         out.append("<?xml version=\"1.0\"?>");
         out.append("<items>");
-        if (translation.getSource().isEmpty() || translation.getDestination().isEmpty()) {
+        if (Objects.nonNull(translation.getCorrectedFrom())) {
+            out.append("<item valid=\"no\" autocomplete=\"");
+            escape(translation.getQuery(), out);
+            out.append("\"><title>Showing translations for ");
+            escape(translation.getQuery(), out);
+            out.append("</title><subtitle>");
+            escape(translation.getCorrectedFrom(), out);
+            out.append(" not found</subtitle>");
+            out.append("</item>");
+        }
+        if (!translation.hasResults()) {
             out.append("<item valid=\"no\">");
-            out.append("<title>").append(translation.getQuery()).append(" not found</title>");
+            out.append("<title>");
+            escape(translation.getQuery(), out);
+            out.append(" not found</title>");
             // out.append("<icon>de_en.png</icon>");
             out.append("</item>");
         } else {
-            var englishWords = translation.getDestination();
-            var germanWords = translation.getSource();
-            var max_iteration = Math.min(MAX_RESULTS,
-                    Math.min(englishWords.size(), germanWords.size()));
-            for (int i = 0; i < max_iteration; i++) {
-                out.append("<item valid=\"yes\" arg=\"").append(englishWords.get(i)).append("\">");
-                out.append("<title>").append(englishWords.get(i)).append("</title>");
-                out.append("<subtitle>").append(germanWords.get(i)).append("</subtitle>");
-                // out.append("<icon>de_en.png</icon>");
-                out.append("</item>");
+            writeItems(translation, "", out);
+        }
+        for (String suggestion : translation.getSuggestions()) {       // actioning one puts it into the search field
+            out.append("<item valid=\"no\" autocomplete=\"");
+            escape(suggestion, out);
+            out.append("\"><title>Did you mean ");
+            escape(suggestion, out);
+            out.append("?</title>");
+            out.append("</item>");
+        }
+        out.append("</items>");
+    }
+
+    /*
+     * all translations end up in one list - the subtitle tells the target language apart
+     */
+    @Override
+    public void write(MultiTranslation translations, Writer out) throws IOException {
+        out.append("<?xml version=\"1.0\"?>");
+        out.append("<items>");
+        if (translations.getTranslations().values().stream().noneMatch(Translation::hasResults)) {
+            out.append("<item valid=\"no\">");
+            out.append("<title>");
+            escape(translations.getQuery(), out);
+            out.append(" not found</title>");
+            out.append("</item>");
+        } else {
+            for (var target : translations.getTranslations().entrySet()) {
+                writeItems(target.getValue(), "[" + target.getKey() + "] ", out);
             }
         }
         out.append("</items>");
-        return out.toString();
+    }
+
+    private void writeItems(Translation translation, String subtitlePrefix, Writer out) throws IOException {
+        for (int i = 0; i < translation.pairCount(); i++) {        // already ranked and limited - see ResultRanker
+            out.append("<item valid=\"yes\" arg=\"");
+            escape(translation.destination(i), out);
+            out.append("\"><title>");
+            escape(translation.destination(i), out);
+            out.append("</title><subtitle>");
+            escape(subtitlePrefix, out);
+            escape(translation.source(i), out);
+            out.append("</subtitle>");
+            // out.append("<icon>de_en.png</icon>");
+            out.append("</item>");
+        }
+    }
+
+    /*
+     * escapes the markup-characters (so it's fine within attributes as well as text) - control-characters aren't
+     * allowed in XML 1.0 at all, so they're dropped
+     */
+    static void escape(String value, Writer out) throws IOException {
+        var from = 0;
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            if (c != '&' && c != '<' && c != '>' && c != '"' && c != '\'' && (c >= 0x20 || c == '\t' || c == '\n' || c == '\r')) {
+                continue;
+            }
+            out.write(value, from, i - from);
+            from = i + 1;
+            switch (c) {
+                case '&' -> out.write("&amp;");
+                case '<' -> out.write("&lt;");
+                case '>' -> out.write("&gt;");
+                case '"' -> out.write("&quot;");
+                case '\'' -> out.write("&apos;");
+                default -> { }
+            }
+        }
+        out.write(value, from, value.length() - from);
     }
 }
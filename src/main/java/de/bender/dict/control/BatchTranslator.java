@@ -0,0 +1,74 @@
+package de.bender.dict.control;
+
+import de.bender.dict.control.Dict.DictBuilder;
+import de.bender.dict.model.Translation;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Translates a (potentially huge) stream of terms with a bounded number of concurrent requests. Terms are read
+ * lazily and the results get handed over in input order as soon as the head of the pipeline completed - so at no
+ * time there are more than {@code parallelism} requests in flight or results buffered. The requests sent to dict.cc
+ * are paced by the lookups themselves (see {@link DictBuilder#withRateLimiter}) - so cached terms aren't slowed down.
+ */
+public class BatchTranslator {
+
+    private final int parallelism;
+
+    public BatchTranslator(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism has to be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @param terms the terms to be translated
+     * @param dictFactory creates a configured {@link DictBuilder} for a single term
+     * @param onResult receives the translations (in input order)
+     * @param onError receives the term along with the cause in case a single translation failed
+     */
+    public void translate(Iterator<String> terms,
+                          Function<String, DictBuilder> dictFactory,
+                          Consumer<Translation> onResult,
+                          BiConsumer<String, Throwable> onError) {
+        var inFlight = new ArrayDeque<Pending>(parallelism);
+        while (terms.hasNext()) {
+            if (inFlight.size() >= parallelism) {
+                complete(inFlight.poll(), onResult, onError);
+            }
+            var term = terms.next();
+            inFlight.add(new Pending(term, start(dictFactory, term)));
+        }
+        while (!inFlight.isEmpty()) {
+            complete(inFlight.poll(), onResult, onError);
+        }
+    }
+
+    /*
+     * a lookup which can't even be started (i.e. without an offline dictionary for --source offline) fails just that term
+     */
+    private static CompletableFuture<Translation> start(Function<String, DictBuilder> dictFactory, String term) {
+        try {
+            return dictFactory.apply(term).buildAsync();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void complete(Pending pending, Consumer<Translation> onResult, BiConsumer<String, Throwable> onError) {
+        try {
+            onResult.accept(pending.translation().join());
+        } catch (CompletionException e) {
+            onError.accept(pending.term(), e.getCause());
+        }
+    }
+
+    private record Pending(String term, CompletableFuture<Translation> translation) { }
+}
@@ -0,0 +1,78 @@
+package de.bender.dict.control;
+
+import java.time.Duration;
+
+/**
+ * Stops us from hammering dict.cc while it's down (or unreachable): after {@code failureThreshold} consecutive
+ * failures the breaker opens and lookups fail fast (or are answered from the cache - even if it's stale). Once
+ * {@code openDuration} has passed, a single trial request is let through - its outcome decides whether the breaker
+ * closes again or stays open for another round. Every request has to report back (see {@link #recordSuccess},
+ * {@link #recordFailure} and {@link #recordCancelled}) - otherwise the trial never ends.
+ */
+public class CircuitBreaker {
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30);
+
+    public enum State {
+        closed, open, halfOpen
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private State state = State.closed;
+    private int failures;
+    private long openedAt;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * @return true if a request may be sent (in half-open state only the first caller gets the chance)
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.open && System.nanoTime() - openedAt >= openNanos) {
+            state = State.halfOpen;
+            return true;
+        }
+        return state == State.closed;
+    }
+
+    public synchronized void recordSuccess() {
+        state = State.closed;
+        failures = 0;
+    }
+
+    public synchronized void recordFailure() {
+        failures++;
+        if (state == State.halfOpen || failures >= failureThreshold) {
+            state = State.open;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * the request was cancelled before it told us anything (i.e. it lost a hedge or race) - if it was the trial, the
+     * breaker opens again and lets the next caller try right away
+     */
+    public synchronized void recordCancelled() {
+        if (state == State.halfOpen) {
+            state = State.open;
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * @return the time until the next trial request is let through
+     */
+    public synchronized Duration retryIn() {
+        return state == State.open
+                ? Duration.ofNanos(Math.max(0, openNanos - (System.nanoTime() - openedAt)))
+                : Duration.ZERO;
+    }
+}
@@ -1,30 +1,62 @@
 package de.bender.dict.control;
 
+import de.bender.dict.control.LookupStats.Counter;
+import de.bender.dict.control.LookupStats.Phase;
 import de.bender.dict.model.Translation;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.net.*;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
-import static java.net.http.HttpClient.Redirect.NORMAL;
-import static java.net.http.HttpClient.Version.HTTP_1_1;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 /**
- * Encapsulates the actual call as well as the result processing of `dict.cc`
+ * Encapsulates a single lookup - answered by the local providers (the offline dictionaries), the caches (in memory
+ * and on disk) or the remaining {@link TranslationProvider}s
+ * (dict.cc by default) - as well as the call and the result processing of `dict.cc` itself
  */
 public class Dict {
-    private static final String EN_MARKER = "var c1Arr";
-    private static final String DE_MARKER = "var c2Arr";
+    static final int OFFLINE_LIMIT = 100;
+    private static final long BASE_BACKOFF_MILLIS = 200;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
 
     private final DictBuilder dictBuilder;
+    private final LookupEvent event = new LookupEvent();
+    private final List<CompletableFuture<?>> exchanges = new CopyOnWriteArrayList<>();
+    private final List<CompletableFuture<?>> providerLookups = new CopyOnWriteArrayList<>();
+    private List<TranslationProvider> providers;
+    private volatile boolean cancelled;
 
     public Dict(DictBuilder dictBuilder) {
         this.dictBuilder = dictBuilder;
@@ -34,94 +66,560 @@ public class Dict {
         return new DictBuilder(toBeTranslated);
     }
 
-    private Translation execute() throws IOException, InterruptedException {
+    /**
+     * @return the term to be translated
+     */
+    public String query() {
+        return dictBuilder.toBeTranslated;
+    }
+
+    public String from() {
+        return dictBuilder.from;
+    }
+
+    public String to() {
+        return dictBuilder.to;
+    }
+
+    public LookupStats stats() {
+        return dictBuilder.stats;
+    }
+
+    private CompletableFuture<Translation> execute() {
+        var stats = dictBuilder.stats;
+        var start = System.nanoTime();
+        event.begin();
+
+        if (!dictBuilder.race) {
+            var local = askLocally();
+            if (local.isPresent()) {
+                return CompletableFuture.completedFuture(finished(local.get(), start, event, "offline"));
+            }
+        }
+
+        // a stale translation in memory is answered right away - and refreshed in the background
+        var memoryCache = dictBuilder.memoryCache;
+        if (Objects.nonNull(memoryCache) && !dictBuilder.refresh) {
+            var remembered = memoryCache.get(dictBuilder.from, dictBuilder.to, dictBuilder.toBeTranslated, this::revalidate);
+            if (remembered.isPresent()) {
+                if (Objects.nonNull(dictBuilder.cache)) {
+                    dictBuilder.cache.touch(dictBuilder.from, dictBuilder.to, dictBuilder.toBeTranslated);     // it's still relevant to the user
+                }
+                return CompletableFuture.completedFuture(finished(remembered.get(), start, event, "memory"));
+            }
+        }
+
+        var cache = dictBuilder.cache;
+        if (Objects.nonNull(cache)) {
+            var cached = dictBuilder.refresh
+                    ? Optional.<Translation>empty()
+                    : cache.get(dictBuilder.from, dictBuilder.to, dictBuilder.toBeTranslated);
+            if (cached.isPresent()) {
+                stats.increment(Counter.cacheHits);
+                if (Objects.nonNull(memoryCache)) {
+                    var storedAt = cache.storedAt(dictBuilder.from, dictBuilder.to, dictBuilder.toBeTranslated);
+                    memoryCache.put(dictBuilder.from, dictBuilder.to, cached.get(), storedAt.orElseGet(System::currentTimeMillis));
+                }
+                return CompletableFuture.completedFuture(finished(cached.get(), start, event, "cache"));
+            }
+            stats.increment(Counter.cacheMisses);
+        }
+
+        return coalesced(start);
+    }
+
+    /*
+     * concurrent lookups of the same term (i.e. duplicates in batch-mode) share one request to dict.cc - the one who
+     * sent it finishes its lookup once it's answered, the ones who joined it finish theirs as "coalesced"
+     */
+    private CompletableFuture<Translation> coalesced(long start) {
+        var singleFlight = dictBuilder.singleFlight;
+        if (Objects.isNull(singleFlight)) {
+            return online(start, event);
+        }
+        var leading = new AtomicBoolean();
+        var lookup = singleFlight.execute(TranslationCache.key(dictBuilder.from, dictBuilder.to, dictBuilder.toBeTranslated),
+                dictBuilder.stats, () -> {
+                    leading.set(true);
+                    return online(start, event);
+                });
+        if (leading.get()) {
+            return lookup;
+        }
+        var joined = lookup.thenApply(translation -> finished(translation, start, event, "coalesced"));
+        joined.whenComplete((translation, failure) -> {
+            if (joined.isCancelled()) {
+                lookup.cancel(true);        // lets the flight know this caller gave up
+            }
+        });
+        return joined;
+    }
+
+    /*
+     * the refresh of a stale translation runs as a lookup of its own - the caller already got its answer
+     */
+    private CompletableFuture<Translation> revalidate() {
+        dictBuilder.stats.increment(Counter.revalidations);
+        var revalidation = new Dict(dictBuilder);
+        revalidation.event.begin();
+        return revalidation.coalesced(System.nanoTime());
+    }
+
+    /*
+     * asks the providers - the translation gets cached, if none of them answers we fall back to a stale one
+     */
+    private CompletableFuture<Translation> online(long start, LookupEvent event) {
+        var cache = dictBuilder.cache;
+        var lookup = ask()
+                .thenApply(translation -> {
+                    if (Objects.nonNull(cache)) {
+                        cache.put(dictBuilder.from, dictBuilder.to, translation);
+                    }
+                    if (Objects.nonNull(dictBuilder.memoryCache)) {
+                        dictBuilder.memoryCache.put(dictBuilder.from, dictBuilder.to, translation);
+                    }
+                    return finished(translation, start, event, "online");
+                })
+                .exceptionallyCompose(failure -> fallback(unwrap(failure), start, event));
+        // cancelling the lookup (i.e. a stale as-you-type query) aborts the providers (and HTTP-exchanges) as well
+        lookup.whenComplete((translation, failure) -> {
+            if (lookup.isCancelled()) {
+                cancelled = true;
+                providerLookups.forEach(providerLookup -> providerLookup.cancel(true));
+            }
+        });
+        return lookup;
+    }
+
+    /*
+     * --source picks among the providers which translate the language pair: the local ones only, all but the local
+     * ones - or (auto) the local ones first (the offline dictionaries are added if none of them was chosen)
+     */
+    private List<TranslationProvider> providers() {
+        if (Objects.nonNull(providers)) {
+            return providers;
+        }
+        var source = dictBuilder.source;
+        var chosen = new ArrayList<>(dictBuilder.providers);
+        if (source != Source.online && chosen.stream().noneMatch(TranslationProvider::local)) {
+            chosen.add(0, new OfflineProvider());
+        }
+        chosen.removeIf(provider -> !provider.canHandle(dictBuilder.from, dictBuilder.to)
+                || source == Source.online && provider.local()
+                || source == Source.offline && !provider.local());
+        if (source == Source.offline && chosen.isEmpty()) {
+            throw new IllegalStateException("There is no offline dictionary for " + dictBuilder.from + "/" + dictBuilder.to + " - please import one first");
+        }
+        providers = chosen;
+        return providers;
+    }
+
+    /*
+     * local providers answer faster than the caches - so they're asked first (and their translations aren't cached).
+     * If there are no other providers, their answer is final - even without results.
+     */
+    private Optional<Translation> askLocally() {
+        Translation translation = null;
+        for (TranslationProvider provider : providers()) {
+            if (!provider.local()) { continue; }
+            translation = provider.translate(this).join();
+            if (translation.hasResults()) {
+                return Optional.of(translation);
+            }
+        }
+        return providers().stream().allMatch(TranslationProvider::local) ? Optional.ofNullable(translation) : Optional.empty();
+    }
+
+    /*
+     * several providers are either raced against each other or asked one after another (as long as they don't know
+     * the term) - the local ones were asked already unless they're raced
+     */
+    private CompletableFuture<Translation> ask() {
+        var providers = providers().stream()
+                .filter(provider -> dictBuilder.race || !provider.local())
+                .toList();
+        if (providers.isEmpty()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("None of the providers " + dictBuilder.providers
+                    + " translates " + dictBuilder.from + "/" + dictBuilder.to));
+        }
+        if (providers.size() == 1) {
+            return ask(providers.get(0));
+        }
+        if (dictBuilder.race) {
+            dictBuilder.stats.increment(Counter.raced);
+            return ProviderRace.race(dictBuilder.toBeTranslated,
+                    providers.stream().<Supplier<CompletableFuture<Translation>>>map(provider -> () -> ask(provider)).toList(),
+                    dictBuilder.mergeBudget);
+        }
+        return askInTurn(providers, 0);
+    }
+
+    private CompletableFuture<Translation> askInTurn(List<TranslationProvider> providers, int index) {
+        var lookup = ask(providers.get(index));
+        if (index == providers.size() - 1) {
+            return lookup;
+        }
+        return lookup
+                .handle((translation, failure) -> Objects.isNull(failure) && translation.hasResults() || cancelled
+                        ? lookup
+                        : askInTurn(providers, index + 1))
+                .thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<Translation> ask(TranslationProvider provider) {
+        var lookup = provider.translate(this);
+        providerLookups.add(lookup);
+        if (cancelled) {
+            lookup.cancel(true);
+        }
+        return lookup;
+    }
+
+    /*
+     * the lookup on dict.cc (see DictCcProvider) - the endpoint of a mirror takes precedence over the one configured
+     */
+    CompletableFuture<Translation> scrape(String endpoint) {
+        var breaker = dictBuilder.circuitBreaker;
+        if (Objects.nonNull(breaker) && !breaker.allowRequest()) {
+            dictBuilder.stats.increment(Counter.shortCircuits);
+            return CompletableFuture.failedFuture(new IOException("dict.cc seems to be down - not asking again for another "
+                    + breaker.retryIn().toSeconds() + "s"));
+        }
+
         var request = HttpRequest
-                .newBuilder(URI.create(String.format("https://%s.dict.cc/?s=%s", dictBuilder.from + dictBuilder.to, URLEncoder.encode(dictBuilder.toBeTranslated, UTF_8.toString()))))
+                .newBuilder(URI.create(String.format(Objects.requireNonNullElse(endpoint, dictBuilder.endpoint),
+                        dictBuilder.from + dictBuilder.to, URLEncoder.encode(dictBuilder.toBeTranslated, UTF_8))))
                 .header("User-agent", "Mozilla/6.0")
+                .header("Accept-Encoding", "gzip, deflate")
+                .timeout(dictBuilder.requestTimeout)
                 .build();
 
-        var response = createHttpClient(this.dictBuilder)
-                .send(request, HttpResponse.BodyHandlers.ofString());
+        var lookup = retrying(request, event, 0);
+        // i.e. if it lost a race (or the lookup itself got cancelled)
+        lookup.whenComplete((translation, failure) -> {
+            if (lookup.isCancelled()) {
+                cancelled = true;
+                exchanges.forEach(exchange -> exchange.cancel(true));
+            }
+        });
+        return lookup;
+    }
 
-        return convert(dictBuilder.toBeTranslated, response)
-                .orElseThrow(() -> new RuntimeException("Dict returned " + response.statusCode() + "!!!"));
+    /*
+     * retries failed attempts (I/O-errors, timeouts, 429 and 5xx) with an exponential backoff - the jitter keeps
+     * concurrent lookups (i.e. in batch-mode) from retrying in lockstep
+     */
+    private CompletableFuture<Translation> retrying(HttpRequest request, LookupEvent event, int retry) {
+        return hedged(request, event)
+                .handle((translation, failure) -> {
+                    if (Objects.isNull(failure)) {
+                        return CompletableFuture.completedFuture(translation);
+                    }
+                    var cause = unwrap(failure);
+                    var breaker = dictBuilder.circuitBreaker;
+                    if (retry >= dictBuilder.retries || !isRetryable(cause) || cancelled
+                            || Objects.nonNull(breaker) && !breaker.allowRequest()) {
+                        return CompletableFuture.<Translation>failedFuture(cause);
+                    }
+                    dictBuilder.stats.increment(Counter.retries);
+                    return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(backoff(retry), MILLISECONDS))
+                            .thenCompose(ignored -> retrying(request, event, retry + 1));
+                })
+                .thenCompose(Function.identity());
     }
 
-    HttpClient createHttpClient(DictBuilder builder) {
-        var clientBuilder = HttpClient.newBuilder()
-                .followRedirects(NORMAL)
-                .version(HTTP_1_1);
+    static long backoff(int retry) {
+        var ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << retry);
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    /*
+     * if the attempt takes longer than usual (the moving average of the latency plus twice its deviation - or the
+     * configured delay as long as there aren't enough requests for it), a second one is sent - whichever answers first
+     * wins, the other one is cancelled
+     */
+    private CompletableFuture<Translation> hedged(HttpRequest request, LookupEvent event) {
+        var first = attempt(request, event);
+        if (Objects.isNull(dictBuilder.hedgeDelay)) {
+            return first;
+        }
+
+        var result = new CompletableFuture<Translation>();
+        var attempts = new CopyOnWriteArrayList<CompletableFuture<Translation>>(List.of(first));
+        var pending = new AtomicInteger(1);
+        BiConsumer<Translation, Throwable> complete = (translation, failure) -> {
+            if (Objects.isNull(failure)) {
+                result.complete(translation);
+            } else if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(failure);
+            }
+        };
+        first.whenComplete(complete);
+
+        var delay = dictBuilder.latency.upperBound().orElse(dictBuilder.hedgeDelay);
+        CompletableFuture.delayedExecutor(delay.toNanos(), NANOSECONDS).execute(() -> {
+            if (first.isDone() || result.isDone() || cancelled) { return; }
+            pending.incrementAndGet();
+            dictBuilder.stats.increment(Counter.hedges);
+            var second = attempt(request, event);
+            attempts.add(second);
+            second.whenComplete(complete);
+            if (result.isDone()) { second.cancel(true); }
+        });
+        result.whenComplete((translation, failure) -> attempts.forEach(attempt -> attempt.cancel(true)));
+        return result;
+    }
+
+    /*
+     * a single request to dict.cc - bounded by the request-timeout (including the download of the body, but not the
+     * time it waits for the rate-limiter)
+     */
+    private CompletableFuture<Translation> attempt(HttpRequest request, LookupEvent event) {
+        var stats = dictBuilder.stats;
+        var breaker = dictBuilder.circuitBreaker;
+        var delay = dictBuilder.rateLimiter.reserve(request.uri().getHost());
+        var start = System.nanoTime() + delay;
 
-        if (Objects.nonNull(builder.proxyHost) && Objects.nonNull(builder.proxyPort)) {
-            clientBuilder.proxy(ProxySelector.of(new InetSocketAddress(builder.proxyHost, builder.proxyPort)));
-            if (Objects.nonNull(builder.proxyUser) && Objects.nonNull(builder.proxyPass)) {
-                clientBuilder.authenticator(basicAuthAuthenticator(builder.proxyUser, builder.proxyPass));
+        stats.increment(Counter.onlineLookups);
+        var exchange = send(request, delay);
+        exchanges.add(exchange);
+        var attempt = exchange
+                .thenApply(response -> {
+                    var elapsed = System.nanoTime() - start;
+                    stats.record(Phase.request, elapsed);
+                    dictBuilder.latency.record(elapsed);
+                    stats.recordStatus(response.statusCode());
+                    event.status = response.statusCode();
+                    if (response.statusCode() >= 400) {
+                        discard(response);
+                        throw new CompletionException(new StatusException(response.statusCode()));
+                    }
+                    return convert(dictBuilder.toBeTranslated, response)
+                            .orElseThrow(() -> new CompletionException(new IOException("dict.cc returned an empty response (" + response.statusCode() + ")")));
+                })
+                .orTimeout(dictBuilder.requestTimeout.toMillis() + NANOSECONDS.toMillis(delay), MILLISECONDS);
+        // the outcome is reported before anyone sees it - so the next lookup (or retry) finds the breaker up to date
+        var reported = attempt.whenComplete((translation, failure) -> {
+            if (Objects.nonNull(failure)) {
+                exchange.cancel(true);      // i.e. if we ran into the timeout while downloading the body
+            }
+            if (Objects.isNull(breaker)) {
+                return;
             }
-        } else if (Objects.nonNull(System.getenv("HTTPS_PROXY"))) {
-            URI proxyUri = URI.create(System.getenv("HTTPS_PROXY"));
-            clientBuilder.proxy(ProxySelector.of(new InetSocketAddress(proxyUri.getHost(), proxyUri.getPort())));
-            if (Objects.nonNull(proxyUri.getUserInfo())) {
-                var proxyAuth = proxyUri.getUserInfo().split(":");
-                clientBuilder.authenticator(basicAuthAuthenticator(proxyAuth[0], proxyAuth[1].toCharArray()));
+            // every outcome has to be reported - otherwise a half-open breaker waits for its trial forever
+            var cause = Objects.isNull(failure) ? null : unwrap(failure);
+            if (Objects.isNull(cause)) {
+                breaker.recordSuccess();
+            } else if (cause instanceof CancellationException) {
+                breaker.recordCancelled();
+            } else if (isRetryable(cause)) {
+                breaker.recordFailure();
+            } else {
+                breaker.recordSuccess();        // dict.cc answered (i.e. with a 404) - so it's up
             }
+        });
+        reported.whenComplete((translation, failure) -> {
+            if (reported.isCancelled()) {
+                attempt.cancel(true);       // i.e. it lost against a hedge
+            }
+        });
+        if (cancelled) {
+            reported.cancel(true);
         }
+        return reported;
+    }
 
-        return clientBuilder.build();
+    /*
+     * the request is sent once the rate-limiter permits it - if the exchange gets cancelled while it waits, it's not
+     * sent at all
+     */
+    private CompletableFuture<HttpResponse<InputStream>> send(HttpRequest request, long delayNanos) {
+        var client = createHttpClient(this.dictBuilder);
+        if (delayNanos <= 0) {
+            return client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        }
+
+        dictBuilder.stats.increment(Counter.throttled);
+        var exchange = new CompletableFuture<HttpResponse<InputStream>>();
+        CompletableFuture.delayedExecutor(delayNanos, NANOSECONDS).execute(() -> {
+            if (exchange.isDone()) { return; }
+            var sent = client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+            exchange.whenComplete((response, failure) -> sent.cancel(true));
+            sent.whenComplete((response, failure) -> {
+                if (Objects.isNull(failure)) {
+                    exchange.complete(response);
+                } else {
+                    exchange.completeExceptionally(failure);
+                }
+            });
+        });
+        return exchange;
     }
 
     /*
-     * provides a basic-auth Authenticator for authentication against a web-proxy (in case it was revealed)
+     * once dict.cc can't be reached, a stale cached translation is still better than nothing
      */
-    Authenticator basicAuthAuthenticator(String username, char[] password) {
-        return new Authenticator() {
-            @Override
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(username, password);
-            }
-        };
+    private CompletableFuture<Translation> fallback(Throwable failure, long start, LookupEvent event) {
+        var stale = Objects.nonNull(dictBuilder.cache)
+                ? dictBuilder.cache.getStale(dictBuilder.from, dictBuilder.to, dictBuilder.toBeTranslated)
+                : Optional.<Translation>empty();
+        if (stale.isPresent()) {
+            dictBuilder.stats.increment(Counter.staleHits);
+            return CompletableFuture.completedFuture(finished(stale.get(), start, event, "stale cache"));
+        }
+        dictBuilder.stats.increment(Counter.failures);
+        return CompletableFuture.failedFuture(failure instanceof TimeoutException
+                ? new HttpTimeoutException("dict.cc didn't answer within " + dictBuilder.requestTimeout.toSeconds() + "s")
+                : failure);
+    }
+
+    static boolean isRetryable(Throwable failure) {
+        if (failure instanceof StatusException statusException) {
+            return statusException.statusCode == 429 || statusException.statusCode >= 500;
+        }
+        return failure instanceof IOException || failure instanceof UncheckedIOException || failure instanceof TimeoutException;
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        while ((failure instanceof CompletionException || failure instanceof ExecutionException) && Objects.nonNull(failure.getCause())) {
+            failure = failure.getCause();
+        }
+        return failure;
+    }
+
+    private static void discard(HttpResponse<InputStream> response) {
+        try {
+            response.body().close();        // we're not interested in error-pages
+        } catch (IOException e) {
+            // nothing we could do about it
+        }
+    }
+
+    private Translation finished(Translation translation, long start, LookupEvent event, String answeredBy) {
+        dictBuilder.stats.record(Phase.total, System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.query = dictBuilder.toBeTranslated;
+            event.languages = dictBuilder.from + dictBuilder.to;
+            event.answeredBy = answeredBy;
+            event.commit();
+        }
+        return translation;
+    }
+
+    HttpClient createHttpClient(DictBuilder builder) {
+        return HttpClients.forProxy(builder.proxyHost, builder.proxyPort, builder.proxyUser, builder.proxyPass);
     }
 
     /*
-     * encapsulates the formatter-determination and the final serialization of the translation results
+     * encapsulates the parsing of the result-page - we only read the page as far as required and close it
+     * afterwards (which cancels the subscription to the rest of the body - the connection is dropped instead of
+     * downloading the whole page). Compressed pages are inflated while they're streamed into the parser.
      */
-    Optional<Translation> convert(String queryTerm, HttpResponse<String> response) {
+    Optional<Translation> convert(String queryTerm, HttpResponse<InputStream> response) {
         if (Objects.isNull(response.body())) {
             return Optional.empty();
         }
-        /*
-         * we basically parse the HTML-output which contains two JS-variable definitions that contain
-         * - c1Arr == the list of english words
-         * - c2Arr == the list of german words
-         */
-        Translation translation = new Translation(queryTerm);
-        response.body()
-                .lines()
-                .filter(l -> l.contains(EN_MARKER) || l.contains(DE_MARKER))
-                .forEach(l -> {
-                    if (l.contains(EN_MARKER)) {
-                        translation.setDestination(processResults(l));
-                    } else {
-                        translation.setSource(processResults(l));
-                    }
-                });
-        return Optional.of(translation);
+        var start = System.nanoTime();
+        var wire = new ReadTimingInputStream(response.body());
+        try (wire; var body = decode(wire, response.headers().firstValue("Content-Encoding").orElse(""))) {
+            var translation = ResultParser.parse(queryTerm, body);
+            dictBuilder.stats.record(Phase.download, wire.readNanos);
+            dictBuilder.stats.record(Phase.parse, System.nanoTime() - start - wire.readNanos);
+            dictBuilder.stats.add(Counter.bytesReceived, wire.bytes);
+            return Optional.of(translation);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static InputStream decode(InputStream body, String contentEncoding) throws IOException {
+        return switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(body, 8192);
+            case "deflate" -> inflating(body);
+            default -> body;
+        };
     }
 
     /*
-     * simple string-based processor of the result-lines from dict.cc
+     * "deflate" is supposed to be zlib-wrapped - but some servers send raw deflate-data, so we peek at the header
      */
-    List<String> processResults(String line) {
-        var values = line.substring(line.indexOf('(') + 1, line.lastIndexOf(')'));
-        return Stream.of(values.split("\",\""))                 // split the string up
-                .map(l -> l.replaceAll("\"", ""))   // remove the javascript "-marks
-                .filter(l -> !l.equals(""))                           // remove empty entries
-                .collect(Collectors.toList());
+    private static InputStream inflating(InputStream body) throws IOException {
+        var in = new PushbackInputStream(body, 2);
+        var header = in.readNBytes(2);
+        in.unread(header);
+        var zlib = header.length == 2 && (header[0] & 0x0f) == 8 && ((header[0] & 0xff) << 8 | (header[1] & 0xff)) % 31 == 0;
+        return new InflaterInputStream(in, new Inflater(!zlib), 8192);
+    }
+
+    /*
+     * since we parse while downloading, we measure the time spent waiting for the body to tell both phases apart -
+     * the bytes are counted as they came over the wire (i.e. still compressed)
+     */
+    private static class ReadTimingInputStream extends FilterInputStream {
+        private long readNanos;
+        private long bytes;
+
+        ReadTimingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            var start = System.nanoTime();
+            try {
+                var read = super.read();
+                bytes += read >= 0 ? 1 : 0;
+                return read;
+            } finally {
+                readNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            var start = System.nanoTime();
+            try {
+                var read = super.read(b, off, len);
+                bytes += Math.max(read, 0);
+                return read;
+            } finally {
+                readNanos += System.nanoTime() - start;
+            }
+        }
+    }
+
+    /**
+     * dict.cc answered with an error status
+     */
+    static class StatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int statusCode;
+
+        StatusException(int statusCode) {
+            super("dict.cc returned " + statusCode);
+            this.statusCode = statusCode;
+        }
+    }
+
+    /**
+     * Determines which providers are asked - {@code auto} prefers the local ones (an imported offline dictionary) and
+     * only asks the others if there is none (or if it doesn't know the term), {@code offline} is the same as choosing
+     * the local providers only
+     */
+    public enum Source {
+        online, offline, auto
     }
 
     /**
      * To make the creation of a proper configured Dict-Service a bit easier we provide a builder pattern for it
      */
     public static class DictBuilder {
+        public static final String DEFAULT_ENDPOINT = "https://%s.dict.cc/?s=%s";
+        public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(10);
+        public static final int DEFAULT_RETRIES = 2;
+
         private final String toBeTranslated;
         private String from = "de";
         private String to = "en";
@@ -129,6 +627,22 @@ public class Dict {
         private Integer proxyPort;
         private String proxyUser;
         private char[] proxyPass;
+        private TranslationCache cache;
+        private MemoryCache memoryCache;
+        private boolean refresh;
+        private String endpoint = DEFAULT_ENDPOINT;
+        private Source source = Source.online;
+        private LookupStats stats = LookupStats.DISABLED;
+        private Duration requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+        private int retries = DEFAULT_RETRIES;
+        private Duration hedgeDelay;
+        private LatencyEstimate latency = new LatencyEstimate();
+        private CircuitBreaker circuitBreaker;
+        private RateLimiter rateLimiter = RateLimiter.UNLIMITED;
+        private SingleFlight singleFlight;
+        private List<TranslationProvider> providers = List.of(new DictCcProvider());
+        private boolean race;
+        private Duration mergeBudget;
 
         DictBuilder(String toBeTranslated) {
             this.toBeTranslated = toBeTranslated;
@@ -164,7 +678,151 @@ public class Dict {
             return this;
         }
 
+        public DictBuilder withCache(TranslationCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        /**
+         * keeps translations in memory (in front of the cache on disk) - meant to be shared by all lookups of a
+         * long-running process
+         */
+        public DictBuilder withMemoryCache(MemoryCache memoryCache) {
+            this.memoryCache = memoryCache;
+            return this;
+        }
+
+        /**
+         * bypasses cached results (but still stores the fresh result in the cache - if there is one)
+         */
+        public DictBuilder withRefresh(boolean refresh) {
+            this.refresh = refresh;
+            return this;
+        }
+
+        public DictBuilder withSource(Source source) {
+            this.source = source;
+            return this;
+        }
+
+        public DictBuilder withStats(LookupStats stats) {
+            this.stats = Objects.requireNonNullElse(stats, LookupStats.DISABLED);
+            return this;
+        }
+
+        /**
+         * the time a single request may take (until the body is read completely)
+         */
+        public DictBuilder withRequestTimeout(Duration timeout) {
+            this.requestTimeout = Objects.requireNonNullElse(timeout, DEFAULT_REQUEST_TIMEOUT);
+            return this;
+        }
+
+        /**
+         * the number of retries after I/O-errors, timeouts and 429/5xx responses (0 disables retries)
+         */
+        public DictBuilder withRetries(int retries) {
+            this.retries = Math.max(0, retries);
+            return this;
+        }
+
+        /**
+         * enables hedging - a second request is sent if the first one didn't answer within the usual latency (see
+         * {@link LatencyEstimate#upperBound}) - the given delay is used as long as there aren't enough requests for
+         * an estimate, null disables hedging
+         */
+        public DictBuilder withHedgeDelay(Duration delay) {
+            this.hedgeDelay = delay;
+            return this;
+        }
+
+        /**
+         * the latency estimate the hedge delay is derived from - shared by all lookups (so it learns from them)
+         */
+        public DictBuilder withLatencyEstimate(LatencyEstimate latency) {
+            this.latency = Objects.requireNonNullElseGet(latency, LatencyEstimate::new);
+            return this;
+        }
+
+        /**
+         * a circuit breaker shared by all lookups (so they fail fast while dict.cc is down)
+         */
+        public DictBuilder withCircuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+
+        /**
+         * paces the requests sent to each host - shared by all lookups (so it limits all of them together)
+         */
+        public DictBuilder withRateLimiter(RateLimiter rateLimiter) {
+            this.rateLimiter = Objects.requireNonNullElse(rateLimiter, RateLimiter.UNLIMITED);
+            return this;
+        }
+
+        /**
+         * coalesces this lookup with concurrent lookups of the same term (sharing the same single-flight)
+         */
+        public DictBuilder withSingleFlight(SingleFlight singleFlight) {
+            this.singleFlight = singleFlight;
+            return this;
+        }
+
+        /**
+         * the providers asked for a translation (on a cache-miss) - dict.cc by default
+         */
+        public DictBuilder withProviders(List<TranslationProvider> providers) {
+            this.providers = providers.isEmpty() ? List.of(new DictCcProvider()) : List.copyOf(providers);
+            return this;
+        }
+
+        /**
+         * asks all providers concurrently (the first non-empty translation wins) instead of one after another
+         */
+        public DictBuilder withRacing(boolean race) {
+            this.race = race;
+            return this;
+        }
+
+        /**
+         * merges the translations of all providers which answered within the given budget (implies racing) - null
+         * disables merging
+         */
+        public DictBuilder withMergeBudget(Duration budget) {
+            this.mergeBudget = budget;
+            this.race |= Objects.nonNull(budget);
+            return this;
+        }
+
+        /**
+         * overrides the URL of dict.cc (i.e. for a local stub) - the template receives the language-pair
+         * (i.e. {@code deen}) and the encoded query-term as parameters
+         */
+        public DictBuilder withEndpoint(String endpointTemplate) {
+            this.endpoint = endpointTemplate;
+            return this;
+        }
+
         public Translation build() throws IOException, InterruptedException {
+            try {
+                return buildAsync().get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException ioException) {
+                    throw ioException;
+                } else if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                    throw uncheckedIOException.getCause();
+                } else if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+
+        /**
+         * triggers the translation without blocking the caller - the returned future completes once dict.cc
+         * answered (or immediately in case of a cache-hit)
+         */
+        public CompletableFuture<Translation> buildAsync() {
             if (Objects.nonNull(this.proxyHost) && Objects.isNull(this.proxyPort) || Objects.isNull(this.proxyHost) && Objects.nonNull(this.proxyPort)) {
                 throw new IllegalStateException("You have to define both - a proxy host along with a proxy port");
             } else {
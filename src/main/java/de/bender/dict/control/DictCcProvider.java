@@ -0,0 +1,53 @@
+package de.bender.dict.control;
+
+import de.bender.dict.model.Translation;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Scrapes the result-pages of dict.cc - retried, hedged and guarded by the circuit-breaker as configured on the
+ * {@link Dict.DictBuilder}. Mirrors (or local stand-ins) serving the same pages can be added as providers of their own.
+ */
+@ApplicationScoped
+public class DictCcProvider implements TranslationProvider {
+
+    public static final String NAME = "dictcc";
+
+    private final String name;
+    private final String endpoint;
+
+    public DictCcProvider() {
+        this(NAME, null);
+    }
+
+    /**
+     * @param endpoint the URL-template of the pages (see {@link Dict.DictBuilder#withEndpoint}) - null means the one
+     * of the lookup
+     */
+    public DictCcProvider(String name, String endpoint) {
+        this.name = name;
+        this.endpoint = endpoint;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public boolean canHandle(String from, String to) {
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<Translation> translate(Dict lookup) {
+        return lookup.scrape(endpoint);
+    }
+
+    @Override
+    public String toString() {
+        return Objects.isNull(endpoint) ? name : name + " (" + endpoint + ")";
+    }
+}
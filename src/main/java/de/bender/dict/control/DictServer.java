@@ -0,0 +1,180 @@
+package de.bender.dict.control;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.bender.dict.control.OutputFormatter.OutputFormat;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A small HTTP-server (bound to localhost only) which keeps a warm process around - so lookups don't have to pay
+ * for the startup and can re-use connections and caches. The CLI forwards its lookups via {@link #forward} as long
+ * as there is a server running (and it answers as a dict-server - anything else on the port is ignored):
+ * <pre>
+ *     GET /translate?q=running&from=de&to=en&o=raw[&limit=20][&bidirectional=true][&refresh=true][&session=alfred]
+ *     GET /stats                                                   (a breakdown of the lookup-timings)
+ * </pre>
+ */
+public class DictServer implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 7331;
+
+    private static final String SERVER_HEADER = "X-Dict-Server";
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 50;
+    private static final int READ_TIMEOUT_MILLIS = 60_000;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * performs the actual lookup and returns the formatted translation
+     */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * @param session identifies the client which is typing (i.e. Alfred) - null for one-off lookups
+         */
+        String translate(String session, String query, String from, String to, OutputFormat format, int limit, boolean bidirectional, boolean refresh) throws Exception;
+    }
+
+    private DictServer(int port, Handler handler, Supplier<String> stats) throws IOException {
+        this.executor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/translate", exchange -> handle(exchange, handler));
+        this.server.createContext("/stats", exchange -> {
+            try (exchange) {
+                respond(exchange, 200, stats.get());
+            }
+        });
+        this.server.setExecutor(executor);
+    }
+
+    public static DictServer start(int port, Handler handler, Supplier<String> stats) throws IOException {
+        var dictServer = new DictServer(port, handler, stats);
+        dictServer.server.start();
+        return dictServer;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        try (exchange) {
+            var parameters = parameters(exchange.getRequestURI().getRawQuery());
+            if (Objects.isNull(parameters.get("q"))) {
+                respond(exchange, 400, "Missing query-parameter 'q'");
+                return;
+            }
+            try {
+                var output = handler.translate(parameters.get("session"),
+                        parameters.get("q"),
+                        parameters.getOrDefault("from", "de"),
+                        parameters.getOrDefault("to", "en"),
+                        OutputFormat.valueOf(parameters.getOrDefault("o", OutputFormat.raw.name())),
+                        Integer.parseInt(parameters.getOrDefault("limit", String.valueOf(ResultRanker.DEFAULT_LIMIT))),
+                        Boolean.parseBoolean(parameters.get("bidirectional")),
+                        Boolean.parseBoolean(parameters.get("refresh")));
+                respond(exchange, 200, output);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                respond(exchange, 400, String.valueOf(e.getMessage()));
+            } catch (Exception e) {
+                respond(exchange, 500, e.toString());
+            }
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        var bytes = body.getBytes(UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=utf-8");
+        exchange.getResponseHeaders().add(SERVER_HEADER, "1");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static Map<String, String> parameters(String rawQuery) {
+        var parameters = new HashMap<String, String>();
+        if (Objects.nonNull(rawQuery)) {
+            for (String parameter : rawQuery.split("&")) {
+                var separator = parameter.indexOf('=');
+                if (separator > 0) {
+                    parameters.put(URLDecoder.decode(parameter.substring(0, separator), UTF_8),
+                            URLDecoder.decode(parameter.substring(separator + 1), UTF_8));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * forwards the lookup to a running server
+     *
+     * @param session identifies the client which is typing (see {@link Handler#translate}) - may be null
+     * @return the formatted translation - or nothing if there is no (healthy) dict-server running at the given port,
+     * so the caller has to do the lookup on its own
+     * @throws IOException if the server rejected the lookup (i.e. an unsupported language)
+     */
+    public static Optional<String> forward(int port, String session, String query, String from, String to, OutputFormat format, int limit, boolean bidirectional, boolean refresh) throws IOException {
+        var url = new URL(String.format("http://127.0.0.1:%d/translate?q=%s&from=%s&to=%s&o=%s&limit=%d&bidirectional=%s&refresh=%s%s",
+                port, URLEncoder.encode(query, UTF_8), from, to, format, limit, bidirectional, refresh,
+                Objects.isNull(session) ? "" : "&session=" + URLEncoder.encode(session, UTF_8)));
+        var connection = (HttpURLConnection) url.openConnection(Proxy.NO_PROXY);
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        try {
+            var status = connection.getResponseCode();
+            if (Objects.isNull(connection.getHeaderField(SERVER_HEADER)) || status >= 500) {
+                return Optional.empty();        // someone else is listening on the port - or the server is in trouble
+            }
+            if (status != 200) {
+                try (var error = connection.getErrorStream()) {
+                    var message = Objects.isNull(error) ? "" : new String(error.readAllBytes(), UTF_8);
+                    throw new ForwardingRejectedException("The dict-server returned " + status + ": " + message);
+                }
+            }
+            try (var body = connection.getInputStream()) {
+                return Optional.of(new String(body.readAllBytes(), UTF_8));
+            }
+        } catch (ForwardingRejectedException e) {
+            throw e;
+        } catch (IOException e) {
+            return Optional.empty();        // no server running (or it didn't answer properly)
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /*
+     * the server did the lookup but rejected it - doing it in-process would end the same way
+     */
+    private static class ForwardingRejectedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        ForwardingRejectedException(String message) {
+            super(message);
+        }
+    }
+}
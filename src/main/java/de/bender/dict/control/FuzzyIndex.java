@@ -0,0 +1,296 @@
+package de.bender.dict.control;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Finds the known terms within a small edit-distance of a (misspelled) query - based on the symmetric-delete idea of
+ * SymSpell: every term is registered under all variants of its prefix with up to one character deleted, a query
+ * looks up the variants of its prefix with up to two characters deleted. Terms sharing a variant with the query are
+ * candidates which get verified with the actual (Levenshtein) distance. That finds everything within distance 1 and
+ * most typos within distance 2 (all but two substitutions within the prefix) with a few dozen binary searches -
+ * instead of comparing the query with hundreds of thousands of terms.
+ * <p>
+ * The index is built when importing an offline dictionary and stored next to it:
+ * <pre>
+ *     header:   magic | version | number of terms | number of variants
+ *     terms:    int[number of terms] offsets of the terms | int[number of terms] lengths of the terms
+ *     variants: long[number of variants] - hash of the variant (upper half) | term-id (lower half), sorted
+ *     bytes:    the UTF-8 bytes of all terms
+ * </pre>
+ * Everything stays memory-mapped - terms seen at runtime (i.e. cached queries) can be {@link #add}ed on top.
+ */
+public class FuzzyIndex {
+
+    public static final int MAX_DISTANCE = 2;
+
+    private static final int MAGIC = 0x4446555a;    // "DFUZ"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int PREFIX_LENGTH = 8;
+    private static final long HASH_MASK = 0xffffffff00000000L;
+
+    private final int mappedTerms;
+    private final IntBuffer offsets;
+    private final IntBuffer lengths;
+    private final LongBuffer variants;
+    private final ByteBuffer termBytes;
+
+    private final List<String> added = new ArrayList<>();
+    private final Set<String> known = new HashSet<>();
+    private long[] addedVariants = new long[16];
+    private int addedVariantCount;
+    private boolean sorted = true;
+
+    public FuzzyIndex() {
+        this(0, IntBuffer.allocate(0), IntBuffer.allocate(0), LongBuffer.allocate(0), ByteBuffer.allocate(0));
+    }
+
+    private FuzzyIndex(int mappedTerms, IntBuffer offsets, IntBuffer lengths, LongBuffer variants, ByteBuffer termBytes) {
+        this.mappedTerms = mappedTerms;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.variants = variants;
+        this.termBytes = termBytes;
+    }
+
+    /**
+     * @return the index stored at the given location (see {@link #write}) - or an empty one if there is none
+     */
+    public static FuzzyIndex open(Path location) {
+        if (!Files.isReadable(location)) {
+            return new FuzzyIndex();
+        }
+        try (var channel = FileChannel.open(location, READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                return new FuzzyIndex();
+            }
+            var termCount = buffer.getInt(8);
+            var variantCount = buffer.getInt(12);
+            var variantsStart = HEADER_SIZE + 8 * termCount;
+            var bytesStart = variantsStart + 8 * variantCount;
+            return new FuzzyIndex(termCount,
+                    buffer.slice(HEADER_SIZE, 4 * termCount).asIntBuffer(),
+                    buffer.slice(HEADER_SIZE + 4 * termCount, 4 * termCount).asIntBuffer(),
+                    buffer.slice(variantsStart, 8 * variantCount).asLongBuffer(),
+                    buffer.slice(bytesStart, buffer.limit() - bytesStart));
+        } catch (IOException | RuntimeException e) {
+            return new FuzzyIndex();        // it's just a nice-to-have - lookups work without it
+        }
+    }
+
+    /**
+     * builds the index for the given (normalized, distinct) terms and writes it to the given location
+     */
+    public static void write(List<String> terms, Path location) throws IOException {
+        var entries = new long[Math.max(16, terms.size() * 4)];
+        var count = 0;
+        for (int id = 0; id < terms.size(); id++) {
+            var hashes = new ArrayList<Integer>();
+            variants(prefix(terms.get(id)), 1, hashes::add);
+            for (int hash : hashes) {
+                if (count == entries.length) {
+                    entries = Arrays.copyOf(entries, entries.length * 2);
+                }
+                entries[count++] = entry(hash, id);
+            }
+        }
+        Arrays.sort(entries, 0, count);
+
+        Files.createDirectories(location.toAbsolutePath().getParent());
+        var tmp = Files.createTempFile(location.toAbsolutePath().getParent(), "fuzzy", ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(terms.size());
+            out.writeInt(count);
+            var encoded = terms.stream().map(t -> t.getBytes(UTF_8)).toList();
+            var offset = 0;
+            for (byte[] bytes : encoded) {
+                out.writeInt(offset);
+                offset += bytes.length;
+            }
+            for (byte[] bytes : encoded) {
+                out.writeInt(bytes.length);
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeLong(entries[i]);
+            }
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+        }
+        Files.move(tmp, location, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    public synchronized int size() {
+        return mappedTerms + added.size();
+    }
+
+    /**
+     * adds the term - unless it's known already
+     */
+    public synchronized void add(String term) {
+        term = OfflineDictionary.normalize(term);
+        if (term.isEmpty() || known.contains(term) || containsMapped(term)) {
+            return;
+        }
+        var id = mappedTerms + added.size();
+        added.add(term);
+        known.add(term);
+        variants(prefix(term), 1, hash -> {
+            if (addedVariantCount == addedVariants.length) {
+                addedVariants = Arrays.copyOf(addedVariants, addedVariants.length * 2);
+            }
+            addedVariants[addedVariantCount++] = entry(hash, id);
+        });
+        sorted = false;
+    }
+
+    /**
+     * @return the known terms within the given edit-distance (at most {@link #MAX_DISTANCE}) of the term - the
+     * closest ones first (the term itself isn't suggested)
+     */
+    public synchronized List<Suggestion> suggest(String term, int maxDistance, int limit) {
+        term = OfflineDictionary.normalize(term);
+        var suggestions = new ArrayList<Suggestion>();
+        if (term.isEmpty() || size() == 0) {
+            return suggestions;
+        }
+        if (!sorted) {
+            Arrays.sort(addedVariants, 0, addedVariantCount);
+            sorted = true;
+        }
+
+        var candidates = new HashSet<Integer>();
+        variants(prefix(term), Math.min(maxDistance, MAX_DISTANCE), hash -> forEachCandidate(hash, candidates::add));
+        for (int id : candidates) {
+            var candidate = term(id);
+            if (Math.abs(candidate.length() - term.length()) > maxDistance) { continue; }
+            var distance = distance(term, candidate);
+            if (distance > 0 && distance <= maxDistance) {
+                suggestions.add(new Suggestion(candidate, distance));
+            }
+        }
+        suggestions.sort(Comparator.comparingInt(Suggestion::distance).thenComparing(Suggestion::term));
+        return suggestions.subList(0, Math.min(limit, suggestions.size()));
+    }
+
+    private boolean containsMapped(String term) {
+        var found = new boolean[1];
+        forEachCandidate(prefix(term).hashCode(), id -> found[0] |= id < mappedTerms && term(id).equals(term));
+        return found[0];
+    }
+
+    /*
+     * hands the ids of all terms registered under the given variant to the consumer (the mapped and the added ones)
+     */
+    private void forEachCandidate(int hash, IntConsumer consumer) {
+        var key = (long) hash << 32;
+        for (int i = lowerBound(variants, variants.limit(), key); i < variants.limit() && (variants.get(i) & HASH_MASK) == key; i++) {
+            consumer.accept((int) variants.get(i));
+        }
+        var heap = LongBuffer.wrap(addedVariants);
+        for (int i = lowerBound(heap, addedVariantCount, key); i < addedVariantCount && (addedVariants[i] & HASH_MASK) == key; i++) {
+            consumer.accept((int) addedVariants[i]);
+        }
+    }
+
+    private static int lowerBound(LongBuffer entries, int count, long key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            var middle = (low + high) >>> 1;
+            if (entries.get(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private String term(int id) {
+        if (id >= mappedTerms) {
+            return added.get(id - mappedTerms);
+        }
+        var bytes = new byte[lengths.get(id)];
+        termBytes.get(offsets.get(id), bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /*
+     * the hash ends up in the upper half - so the entries are sorted by hash (the ids of one hash are sorted as well)
+     */
+    private static long entry(int hash, int id) {
+        return (long) hash << 32 | (id & 0xffffffffL);
+    }
+
+    private static String prefix(String term) {
+        return term.length() > PREFIX_LENGTH ? term.substring(0, PREFIX_LENGTH) : term;
+    }
+
+    /*
+     * the hashes of the term itself and of all of its variants with up to the given number of characters deleted
+     */
+    private static void variants(String term, int deletes, IntConsumer consumer) {
+        var seen = new HashSet<String>();
+        seen.add(term);
+        consumer.accept(term.hashCode());
+        var current = List.of(term);
+        for (int round = 0; round < deletes; round++) {
+            var next = new ArrayList<String>();
+            for (String variant : current) {
+                for (int i = 0; i < variant.length(); i++) {
+                    var deleted = variant.substring(0, i) + variant.substring(i + 1);
+                    if (seen.add(deleted)) {
+                        consumer.accept(deleted.hashCode());
+                        next.add(deleted);
+                    }
+                }
+            }
+            current = next;
+        }
+    }
+
+    static int distance(String a, String b) {
+        var previous = new int[b.length() + 1];
+        var current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                var cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+            }
+            var swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    public record Suggestion(String term, int distance) { }
+}
@@ -0,0 +1,108 @@
+package de.bender.dict.control;
+
+import java.net.Authenticator;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.net.http.HttpClient.Redirect.NORMAL;
+import static java.net.http.HttpClient.Version.HTTP_2;
+
+/**
+ * Registry of shared {@link HttpClient}s - one per proxy configuration. Since every client comes with its own
+ * selector-thread and connection-pool, re-using them allows subsequent lookups to re-use already established
+ * (keep-alive / HTTP/2) connections and TLS-sessions instead of doing the handshakes over and over again.
+ */
+public final class HttpClients {
+
+    private static final String POOL_SIZE_PROPERTY = "jdk.httpclient.connectionPoolSize";
+    private static final String KEEP_ALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(5);
+
+    private static final Map<ProxyConfig, HttpClient> CLIENTS = new ConcurrentHashMap<>();
+    private static volatile Duration connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+
+    private HttpClients() { }
+
+    /**
+     * configures the connection-pool of the JDK's HttpClient - since the JDK reads these settings once, this has to
+     * happen before the first client gets created (later calls won't have any effect)
+     *
+     * @param poolSize the maximum number of pooled connections (0 means unlimited)
+     * @param idleTimeout the time an idle connection is kept in the pool
+     * @param connectTimeout the time establishing a connection may take
+     */
+    public static void configure(int poolSize, Duration idleTimeout, Duration connectTimeout) {
+        System.setProperty(POOL_SIZE_PROPERTY, String.valueOf(poolSize));
+        System.setProperty(KEEP_ALIVE_PROPERTY, String.valueOf(idleTimeout.toSeconds()));
+        HttpClients.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * @return a shared client for the given (explicit) proxy settings - if there are none we fall back to the
+     * HTTPS_PROXY environment variable (if present)
+     */
+    public static HttpClient forProxy(String host, Integer port, String user, char[] password) {
+        return CLIENTS.computeIfAbsent(ProxyConfig.of(host, port, user, password), HttpClients::create);
+    }
+
+    public static int size() {
+        return CLIENTS.size();
+    }
+
+    private static HttpClient create(ProxyConfig config) {
+        var clientBuilder = HttpClient.newBuilder()
+                .followRedirects(NORMAL)
+                .connectTimeout(connectTimeout)
+                .version(HTTP_2);           // negotiated via ALPN - falls back to HTTP/1.1 if not supported
+
+        if (Objects.nonNull(config.host())) {
+            clientBuilder.proxy(ProxySelector.of(new InetSocketAddress(config.host(), config.port())));
+            if (Objects.nonNull(config.user())) {
+                clientBuilder.authenticator(basicAuthAuthenticator(config.user(), config.password().toCharArray()));
+            }
+        }
+        return clientBuilder.build();
+    }
+
+    /*
+     * provides a basic-auth Authenticator for authentication against a web-proxy (in case it was revealed)
+     */
+    static Authenticator basicAuthAuthenticator(String username, char[] password) {
+        return new Authenticator() {
+            @Override
+            protected PasswordAuthentication getPasswordAuthentication() {
+                return new PasswordAuthentication(username, password);
+            }
+        };
+    }
+
+    /*
+     * the effective proxy settings which serve as key for the client-registry
+     */
+    record ProxyConfig(String host, Integer port, String user, String password) {
+
+        static ProxyConfig of(String host, Integer port, String user, char[] password) {
+            if (Objects.nonNull(host) && Objects.nonNull(port)) {
+                return Objects.nonNull(user) && Objects.nonNull(password)
+                        ? new ProxyConfig(host, port, user, String.valueOf(password))
+                        : new ProxyConfig(host, port, null, null);
+            } else if (Objects.nonNull(System.getenv("HTTPS_PROXY"))) {
+                URI proxyUri = URI.create(System.getenv("HTTPS_PROXY"));
+                if (Objects.nonNull(proxyUri.getUserInfo())) {
+                    var proxyAuth = proxyUri.getUserInfo().split(":");
+                    return new ProxyConfig(proxyUri.getHost(), proxyUri.getPort(), proxyAuth[0], proxyAuth[1]);
+                }
+                return new ProxyConfig(proxyUri.getHost(), proxyUri.getPort(), null, null);
+            }
+            return new ProxyConfig(null, null, null, null);
+        }
+    }
+}
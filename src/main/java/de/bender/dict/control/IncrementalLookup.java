@@ -0,0 +1,217 @@
+package de.bender.dict.control;
+
+import de.bender.dict.control.LookupStats.Counter;
+import de.bender.dict.model.Translation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * As-you-type lookups - Alfred calls us for every keystroke, so we see "hau", "haus", "hause", ... in quick
+ * succession. Every result ends up in an in-memory prefix index, which allows to answer a longer query right away
+ * by refining the result of a shorter one (dict.cc returns all entries containing the term, so the entries for
+ * "haus" are a subset of the ones for "hau"). On top of that:
+ * <ul>
+ *     <li>the lookup of a query that got superseded by a newer one (of the same session and language pair) is
+ *     cancelled - it's answered with the refined result (or the one of the newer query) instead of an error</li>
+ *     <li>the likely completions of a query (the words of its result starting with it) are prefetched</li>
+ * </ul>
+ * The actual lookup is still started for every query - if it doesn't return within {@code patience}, the refined
+ * result is answered instead (the real one ends up in the index for the next keystroke). Concurrent lookups of the
+ * same term share a single request, which is only cancelled once all of its callers gave up on it - so one client
+ * never cancels the lookup of another one.
+ */
+public class IncrementalLookup {
+
+    private static final int MAX_ENTRIES = 2_000;
+    private static final int MIN_PREFIX = 2;
+    private static final int PREFETCH_LIMIT = 3;
+
+    private final Lookup lookup;
+    private final Duration patience;
+    private final LookupStats stats;
+    private final LinkedHashMap<String, Translation> index;
+    private final SingleFlight flights = new SingleFlight();
+    private final Map<String, CompletableFuture<Translation>> latest = new ConcurrentHashMap<>();
+
+    /**
+     * the lookup of a single query (i.e. via {@link Dict.DictBuilder#buildAsync()})
+     */
+    @FunctionalInterface
+    public interface Lookup {
+        CompletableFuture<Translation> lookup(String query, String from, String to);
+    }
+
+    public IncrementalLookup(Lookup lookup, Duration patience, LookupStats stats) {
+        this.lookup = lookup;
+        this.patience = patience;
+        this.stats = Objects.requireNonNullElse(stats, LookupStats.DISABLED);
+        this.index = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Translation> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+    }
+
+    /**
+     * @param session identifies the client typing (i.e. the Alfred workflow) - only its own newer queries supersede a
+     *                query, anonymous ones (null) are never superseded
+     */
+    public Translation lookup(String session, String query, String from, String to) throws Exception {
+        var term = TranslationCache.normalize(query);
+        var typing = Objects.isNull(session) ? null : session + '|' + from + '|' + to;
+        var indexed = indexed(from, to, term);
+        if (indexed.isPresent()) {
+            stats.increment(Counter.indexHits);
+            supersede(typing, CompletableFuture.completedFuture(indexed.get()));
+            return indexed.get();
+        }
+
+        var fresh = fetch(query.strip(), from, to, true);
+        supersede(typing, fresh);
+        var refined = refine(query.strip(), from, to, term);
+        try {
+            if (refined.isEmpty()) {
+                return fresh.get();
+            }
+            try {
+                return fresh.get(patience.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                stats.increment(Counter.refinedHits);
+                return refined.get();
+            }
+        } catch (CancellationException e) {
+            return superseded(typing, refined);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    /*
+     * whatever the session typed before (for the same language pair) is of no interest anymore - as every caller
+     * has its own future, cancelling it only cancels the request if nobody else is waiting for it
+     */
+    private void supersede(String typing, CompletableFuture<Translation> current) {
+        if (Objects.isNull(typing)) {
+            return;
+        }
+        var previous = latest.put(typing, current);
+        if (Objects.nonNull(previous) && previous.cancel(true)) {
+            stats.increment(Counter.cancellations);
+        }
+    }
+
+    /*
+     * the caller is still waiting for an answer - the refined result or the one of the query which superseded it
+     * (which is always registered before the stale one gets cancelled)
+     */
+    private Translation superseded(String typing, Optional<Translation> refined) throws Exception {
+        if (refined.isPresent()) {
+            return refined.get();
+        }
+        while (true) {
+            try {
+                return latest.get(typing).get();
+            } catch (CancellationException e) {
+                // superseded once more - wait for the next one
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+    }
+
+    private CompletableFuture<Translation> fetch(String query, String from, String to, boolean prefetchCompletions) {
+        var key = TranslationCache.key(from, to, query);
+        return flights.execute(key, LookupStats.DISABLED, () -> {
+            var future = lookup.lookup(query, from, to);
+            future.thenAccept(translation -> {
+                synchronized (index) {
+                    index.put(key, translation);
+                }
+                if (prefetchCompletions) {
+                    prefetch(from, to, TranslationCache.normalize(query), translation);
+                }
+            });
+            return future;
+        });
+    }
+
+    /*
+     * the words of the result which start with the term are the most likely next queries (i.e. "hau" -> "haus")
+     */
+    private void prefetch(String from, String to, String term, Translation translation) {
+        var completions = new LinkedHashSet<String>();
+        for (int i = 0; i < translation.pairCount() && completions.size() < PREFETCH_LIMIT; i++) {
+            completions(term, translation.source(i), completions);
+            completions(term, translation.destination(i), completions);
+        }
+        completions.stream()
+                .limit(PREFETCH_LIMIT)
+                .filter(completion -> indexed(from, to, completion).isEmpty())
+                .forEach(completion -> {
+                    stats.increment(Counter.prefetches);
+                    fetch(completion, from, to, false);
+                });
+    }
+
+    private static void completions(String term, String entry, LinkedHashSet<String> completions) {
+        for (String word : entry.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() > term.length() && word.startsWith(term)) {
+                completions.add(word);
+            }
+        }
+    }
+
+    /*
+     * answers the query from the result of its longest indexed prefix - restricted to the entries containing a word
+     * which starts with the query
+     */
+    private Optional<Translation> refine(String query, String from, String to, String term) {
+        for (int length = term.length() - 1; length >= MIN_PREFIX; length--) {
+            var prefixed = indexed(from, to, term.substring(0, length));
+            if (prefixed.isEmpty()) {
+                continue;
+            }
+            var translation = prefixed.get();
+            var source = new ArrayList<String>();
+            var destination = new ArrayList<String>();
+            for (int i = 0; i < translation.pairCount(); i++) {
+                if (matches(translation.source(i), term) || matches(translation.destination(i), term)) {
+                    source.add(translation.source(i));
+                    destination.add(translation.destination(i));
+                }
+            }
+            return source.isEmpty() ? Optional.empty() : Optional.of(new Translation(query, source, destination));
+        }
+        return Optional.empty();
+    }
+
+    static boolean matches(String entry, String term) {
+        var lowerCase = entry.toLowerCase(Locale.ROOT);
+        for (int i = lowerCase.indexOf(term); i >= 0; i = lowerCase.indexOf(term, i + 1)) {
+            if (i == 0 || !Character.isLetterOrDigit(lowerCase.charAt(i - 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Optional<Translation> indexed(String from, String to, String term) {
+        synchronized (index) {
+            return Optional.ofNullable(index.get(TranslationCache.key(from, to, term)));
+        }
+    }
+}
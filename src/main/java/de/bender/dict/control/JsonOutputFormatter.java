@@ -1,27 +1,121 @@
 package de.bender.dict.control;
 
+import de.bender.dict.model.MultiTranslation;
 import de.bender.dict.model.Translation;
 
 import javax.enterprise.context.ApplicationScoped;
-import javax.json.bind.Jsonb;
-import javax.json.bind.JsonbBuilder;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Objects;
 
+/**
+ * Handles both, plain JSON and NDJSON - a single translation looks the same in both formats (one object on one line),
+ * they only differ in how multiple translations (batch-mode) are put together.
+ * The JSON is written by hand (with the properties in the same order JSON-B used) - so there's neither reflection
+ * nor a JSON-B provider which would have to be bootstrapped on every invocation of the native binary.
+ */
 @ApplicationScoped
 public class JsonOutputFormatter implements OutputFormatter {
 
-    private final Jsonb jsonb;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
 
-    public JsonOutputFormatter() {
-        this.jsonb = JsonbBuilder.create();
+    @Override
+    public boolean canHandle(OutputFormat format) {
+        return OutputFormat.json.equals(format) || OutputFormat.ndjson.equals(format);
     }
 
+    /*
+     * the correction and the suggestions only show up if there are any - so the usual object stays the same
+     */
     @Override
-    public boolean canHandle(OutputFormat format) {
-        return OutputFormat.json.equals(format);
+    public void write(Translation translation, Writer out) throws IOException {
+        out.write('{');
+        if (Objects.nonNull(translation.getCorrectedFrom())) {
+            writeProperty("correctedFrom", translation.getCorrectedFrom(), out);
+            out.write(',');
+        }
+        writeArray("destination", translation.getDestination(), out);
+        out.write(',');
+        writeProperty("query", translation.getQuery(), out);
+        out.write(',');
+        writeArray("source", translation.getSource(), out);
+        if (!translation.getSuggestions().isEmpty()) {
+            out.write(',');
+            writeArray("suggestions", translation.getSuggestions(), out);
+        }
+        out.write('}');
     }
 
     @Override
-    public String format(Translation translation) {
-        return jsonb.toJson(translation);
+    public void write(MultiTranslation translations, Writer out) throws IOException {
+        out.write('{');
+        writeProperty("from", translations.getFrom(), out);
+        out.write(',');
+        writeProperty("query", translations.getQuery(), out);
+        out.write(',');
+        writeString("translations", out);
+        out.write(":{");
+        var separator = false;
+        for (var target : translations.getTranslations().entrySet()) {
+            if (separator) { out.write(','); }
+            writeString(target.getKey(), out);
+            out.write(':');
+            write(target.getValue(), out);
+            separator = true;
+        }
+        out.write("}}");
+    }
+
+    private static void writeProperty(String name, String value, Writer out) throws IOException {
+        writeString(name, out);
+        out.write(':');
+        if (Objects.isNull(value)) {
+            out.write("null");
+        } else {
+            writeString(value, out);
+        }
+    }
+
+    private static void writeArray(String name, List<String> values, Writer out) throws IOException {
+        writeString(name, out);
+        out.write(":[");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) { out.write(','); }
+            writeString(values.get(i), out);
+        }
+        out.write(']');
+    }
+
+    /*
+     * escapes quotes, backslashes and control-characters (RFC 8259) - everything else is written as is
+     */
+    static void writeString(String value, Writer out) throws IOException {
+        out.write('"');
+        var from = 0;
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            if (c != '"' && c != '\\' && c >= 0x20) {
+                continue;
+            }
+            out.write(value, from, i - from);
+            from = i + 1;
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                case '\b' -> out.write("\\b");
+                case '\f' -> out.write("\\f");
+                default -> {
+                    out.write("\\u00");
+                    out.write(HEX[c >> 4]);
+                    out.write(HEX[c & 0xF]);
+                }
+            }
+        }
+        out.write(value, from, value.length() - from);
+        out.write('"');
     }
 }
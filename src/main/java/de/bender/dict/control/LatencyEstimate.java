@@ -0,0 +1,40 @@
+package de.bender.dict.control;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * A cheap, always-on estimate of how long dict.cc usually takes to answer - a moving average of the latency and its
+ * deviation (the way TCP estimates round-trip times), so recording a sample doesn't cost more than a few
+ * multiplications. Shared by all lookups of a process (i.e. to decide when a request is late enough to be hedged).
+ */
+public class LatencyEstimate {
+
+    private static final double GAIN = 0.125;
+    private static final double DEVIATION_GAIN = 0.25;
+    private static final int MIN_SAMPLES = 20;
+
+    private double mean;
+    private double deviation;
+    private long samples;
+
+    public synchronized void record(long nanos) {
+        if (samples++ == 0) {
+            mean = nanos;
+            deviation = nanos / 2.0;
+            return;
+        }
+        deviation += DEVIATION_GAIN * (Math.abs(nanos - mean) - deviation);
+        mean += GAIN * (nanos - mean);
+    }
+
+    /**
+     * @return the mean of the recent latencies plus twice their deviation (a bit more than most requests take) - as
+     * long as there are enough samples for it to be meaningful
+     */
+    public synchronized Optional<Duration> upperBound() {
+        return samples >= MIN_SAMPLES
+                ? Optional.of(Duration.ofNanos((long) (mean + 2 * deviation)))
+                : Optional.empty();
+    }
+}
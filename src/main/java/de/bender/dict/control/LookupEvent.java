@@ -0,0 +1,30 @@
+package de.bender.dict.control;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR-event which gets emitted for every lookup - record them via {@code -XX:StartFlightRecording}
+ */
+@Name("de.bender.dict.Lookup")
+@Label("Dict Lookup")
+@Category("Dict")
+@Description("A single translation lookup")
+class LookupEvent extends Event {
+
+    @Label("Query")
+    String query;
+
+    @Label("Languages")
+    String languages;
+
+    @Label("Answered by")
+    @Description("offline, memory, cache, online, stale cache or coalesced")
+    String answeredBy;
+
+    @Label("HTTP Status")
+    int status;
+}
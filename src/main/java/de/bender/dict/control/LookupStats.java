@@ -0,0 +1,158 @@
+package de.bender.dict.control;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects timings of the phases of a lookup as well as a few counters (status-codes, cache-hits, ...) - a single
+ * instance can be shared by concurrent lookups (i.e. in batch- or server-mode).
+ */
+public class LookupStats {
+
+    /**
+     * a no-op instance for those who aren't interested in statistics
+     */
+    public static final LookupStats DISABLED = new LookupStats(false);
+
+    public enum Phase {
+        request("request (DNS, connect, TLS, time to first byte)"),
+        download("body download"),
+        parse("parsing"),
+        format("formatting"),
+        total("total lookup");
+
+        private final String description;
+
+        Phase(String description) {
+            this.description = description;
+        }
+    }
+
+    public enum Counter {
+        cacheHits, cacheMisses, offlineHits, onlineLookups, retries, failures,
+        indexHits, refinedHits, prefetches, cancellations,
+        hedges, shortCircuits, throttled, staleHits, bytesReceived, flights, coalesced, raced, revalidations
+    }
+
+    private final boolean enabled;
+    private final Map<Phase, Histogram> histograms = new EnumMap<>(Phase.class);
+    private final Map<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+    private final Map<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+
+    public LookupStats() {
+        this(true);
+    }
+
+    private LookupStats(boolean enabled) {
+        this.enabled = enabled;
+        for (Phase phase : Phase.values()) {
+            histograms.put(phase, new Histogram());
+        }
+        for (Counter counter : Counter.values()) {
+            counters.put(counter, new LongAdder());
+        }
+    }
+
+    public void record(Phase phase, long nanos) {
+        if (enabled) {
+            histograms.get(phase).record(nanos);
+        }
+    }
+
+    public void increment(Counter counter) {
+        if (enabled) {
+            counters.get(counter).increment();
+        }
+    }
+
+    public void add(Counter counter, long value) {
+        if (enabled) {
+            counters.get(counter).add(value);
+        }
+    }
+
+    public void recordStatus(int statusCode) {
+        if (enabled) {
+            statusCodes.computeIfAbsent(statusCode, s -> new LongAdder()).increment();
+        }
+    }
+
+    public long count(Counter counter) {
+        return counters.get(counter).sum();
+    }
+
+    /**
+     * @return the number of timings recorded for the phase
+     */
+    public long count(Phase phase) {
+        return histograms.get(phase).count();
+    }
+
+    /**
+     * @return a human readable breakdown of all timings (count, mean and percentiles) and counters
+     */
+    public String report() {
+        var out = new StringBuilder();
+        out.append(String.format("%-50s %8s %10s %10s %10s %10s%n", "Phase", "Count", "Mean (ms)", "p50 (ms)", "p95 (ms)", "p99 (ms)"));
+        for (Phase phase : Phase.values()) {
+            var histogram = histograms.get(phase);
+            if (histogram.count() == 0) { continue; }
+            out.append(String.format("%-50s %8d %10.3f %10.3f %10.3f %10.3f%n", phase.description, histogram.count(),
+                    millis(histogram.mean()), millis(histogram.percentile(0.5)), millis(histogram.percentile(0.95)), millis(histogram.percentile(0.99))));
+        }
+        out.append(String.format("%nCounters:%n"));
+        for (Counter counter : Counter.values()) {
+            out.append(String.format("  %-20s %8d%n", counter, count(counter)));
+        }
+        var lookups = count(Counter.flights) + count(Counter.coalesced);
+        if (lookups > 0) {
+            out.append(String.format("  %-20s %7.1f%%%n", "deduplicated", count(Counter.coalesced) * 100.0 / lookups));
+        }
+        if (!statusCodes.isEmpty()) {
+            out.append(String.format("HTTP status codes:%n"));
+            new TreeMap<>(statusCodes).forEach((status, count) -> out.append(String.format("  %-20d %8d%n", status, count.sum())));
+        }
+        return out.toString();
+    }
+
+    private static double millis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /*
+     * keeps the most recent samples (in a ring-buffer) for the percentiles - so long-running servers don't grow
+     */
+    static class Histogram {
+        private static final int MAX_SAMPLES = 8192;
+
+        private final long[] samples = new long[MAX_SAMPLES];
+        private long count;
+        private long sum;
+
+        synchronized void record(long value) {
+            samples[(int) (count % MAX_SAMPLES)] = value;
+            count++;
+            sum += value;
+        }
+
+        synchronized long count() {
+            return count;
+        }
+
+        synchronized double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        synchronized double percentile(double percentile) {
+            if (count == 0) { return 0; }
+            var sorted = Arrays.copyOf(samples, (int) Math.min(count, MAX_SAMPLES));
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)];
+        }
+    }
+}
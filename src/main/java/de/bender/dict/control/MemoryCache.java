@@ -0,0 +1,296 @@
+package de.bender.dict.control;
+
+import de.bender.dict.model.Translation;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * The in-process (L1) cache in front of the {@link TranslationCache} - so repeated lookups of a long-running process
+ * (server, batch, repl) never leave the heap. Reads are lock-free (a concurrent map plus a CAS on the frequency
+ * sketch), only admitting new translations is serialized - which happens after a lookup on dict.cc anyway.
+ * <ul>
+ *     <li>it's bounded by the (estimated) size of the translations in bytes - not by their number</li>
+ *     <li>admission follows TinyLFU: a 4-bit count-min sketch estimates how often a term was asked for recently, a
+ *     new translation only replaces a (sampled) victim which was asked for less often - translations asked for
+ *     just once give way to any newcomer</li>
+ *     <li>expired translations are served for another while (stale-while-revalidate) - the first one to hit a
+ *     stale translation refreshes it in the background</li>
+ * </ul>
+ */
+public class MemoryCache {
+
+    public static final long DEFAULT_MAX_BYTES = 32L << 20;
+    public static final Duration DEFAULT_STALE_WHILE_REVALIDATE = Duration.ofHours(1);
+
+    private static final int SAMPLE_SIZE = 8;
+    private static final int TYPICAL_ENTRY_BYTES = 4096;
+
+    private final long maxBytes;
+    private final Duration ttl;
+    private final Duration staleWhileRevalidate;
+    private final Map<String, Node> entries = new ConcurrentHashMap<>();
+    private final FrequencySketch sketch;
+    private final AtomicLong bytes = new AtomicLong();
+    private final ReentrantLock admission = new ReentrantLock();
+    private Iterator<Node> hand;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    public MemoryCache(long maxBytes, Duration ttl, Duration staleWhileRevalidate) {
+        this.maxBytes = maxBytes;
+        this.ttl = ttl;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.sketch = new FrequencySketch((int) Math.min(1 << 20, Math.max(1024, maxBytes / TYPICAL_ENTRY_BYTES)));
+    }
+
+    /**
+     * @param revalidate refreshes the translation (and puts it into the cache) - it's called if the translation is
+     * stale and nobody else is refreshing it already
+     */
+    public Optional<Translation> get(String from, String to, String query, Supplier<CompletableFuture<Translation>> revalidate) {
+        var key = TranslationCache.key(from, to, query);
+        sketch.increment(key);
+        var node = entries.get(key);
+        var age = Objects.isNull(node) ? Long.MAX_VALUE : System.currentTimeMillis() - node.storedAt;
+        if (age > ttl.toMillis() + staleWhileRevalidate.toMillis()) {
+            misses.increment();
+            return Optional.empty();
+        }
+        if (age > ttl.toMillis()) {
+            staleHits.increment();
+            if (node.revalidating.compareAndSet(false, true)) {
+                try {
+                    revalidate.get().whenComplete((translation, failure) -> node.revalidating.set(false));
+                } catch (RuntimeException e) {
+                    node.revalidating.set(false);       // we'll try again with the next hit
+                }
+            }
+        } else {
+            hits.increment();
+        }
+        return Optional.of(node.translation);
+    }
+
+    public void put(String from, String to, Translation translation) {
+        put(from, to, translation, System.currentTimeMillis());
+    }
+
+    /**
+     * @param storedAt when the translation was looked up - a translation taken over from the cache on disk keeps its
+     * age (so it doesn't live longer than its TTL)
+     */
+    public void put(String from, String to, Translation translation, long storedAt) {
+        var key = TranslationCache.key(from, to, translation.getQuery());
+        var candidate = new Node(key, translation, weigh(key, translation), storedAt);
+        if (candidate.weight > maxBytes) {
+            rejections.increment();
+            return;
+        }
+
+        admission.lock();
+        try {
+            var existing = entries.get(key);
+            var required = candidate.weight - (Objects.isNull(existing) ? 0 : existing.weight);
+            var frequency = sketch.frequency(key);
+            while (bytes.get() + required > maxBytes) {
+                var victim = victim(key);
+                if (Objects.isNull(victim)) { break; }
+                var victimFrequency = sketch.frequency(victim.key);
+                if (Objects.isNull(existing) && frequency <= victimFrequency && victimFrequency > 1) {
+                    rejections.increment();         // it's not (yet) asked for often enough to replace what's there
+                    return;
+                }
+                if (entries.remove(victim.key, victim)) {
+                    bytes.addAndGet(-victim.weight);
+                    evictions.increment();
+                }
+            }
+            entries.put(key, candidate);
+            bytes.addAndGet(required);
+        } finally {
+            admission.unlock();
+        }
+    }
+
+    /*
+     * the least frequently asked for among a few entries - the "hand" moves on over the map (its iterator is weakly
+     * consistent, so it doesn't care about concurrent changes) and starts all over once it reached the end
+     */
+    private Node victim(String candidate) {
+        Node victim = null;
+        var victimFrequency = Integer.MAX_VALUE;
+        for (int sampled = 0, visited = 0; sampled < SAMPLE_SIZE && visited <= entries.size(); visited++) {
+            if (Objects.isNull(hand) || !hand.hasNext()) {
+                hand = entries.values().iterator();
+                if (!hand.hasNext()) { break; }
+            }
+            var node = hand.next();
+            if (node.key.equals(candidate)) { continue; }
+            sampled++;
+            var frequency = sketch.frequency(node.key);
+            if (frequency < victimFrequency || frequency == victimFrequency && node.storedAt < victim.storedAt) {
+                victim = node;
+                victimFrequency = frequency;
+            }
+        }
+        return victim;
+    }
+
+    /*
+     * a rough estimate of the retained heap - object headers, references and the (latin-1) characters of the strings
+     */
+    private static long weigh(String key, Translation translation) {
+        var weight = 96L + 48 + key.length() + 48 + translation.getQuery().length() + 32L;
+        for (int i = 0; i < translation.pairCount(); i++) {
+            weight += 8 + 48 + translation.source(i).length() + 48 + translation.destination(i).length();
+        }
+        return weight;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the (estimated) size of all cached translations in bytes
+     */
+    public long bytes() {
+        return bytes.get();
+    }
+
+    public double hitRate() {
+        var found = hits.sum() + staleHits.sum();
+        var total = found + misses.sum();
+        return total == 0 ? 0 : (double) found / total;
+    }
+
+    /**
+     * @return a human readable summary - size, hit rate and evictions
+     */
+    public String report() {
+        return String.format("%nMemory cache (L1):%n")
+                + String.format("  %-20s %8d%n", "entries", size())
+                + String.format("  %-20s %8.1f of %.1f MB%n", "size (estimated)", bytes() / (double) (1 << 20), maxBytes / (double) (1 << 20))
+                + String.format("  %-20s %7.1f%%%n", "hit rate", hitRate() * 100)
+                + String.format("  %-20s %8d%n", "hits", hits.sum())
+                + String.format("  %-20s %8d%n", "stale hits", staleHits.sum())
+                + String.format("  %-20s %8d%n", "misses", misses.sum())
+                + String.format("  %-20s %8d%n", "evictions", evictions.sum())
+                + String.format("  %-20s %8d%n", "rejected", rejections.sum());
+    }
+
+    private static final class Node {
+        private final String key;
+        private final Translation translation;
+        private final long weight;
+        private final long storedAt;
+        private final AtomicBoolean revalidating = new AtomicBoolean();
+
+        Node(String key, Translation translation, long weight, long storedAt) {
+            this.key = key;
+            this.translation = translation;
+            this.weight = weight;
+            this.storedAt = storedAt;
+        }
+    }
+
+    /**
+     * A count-min sketch of 4-bit counters (16 per long) - every key increments one counter in each of four rows,
+     * its frequency is the smallest of them. All counters are halved once the number of increments reached ten times
+     * the width, so the sketch forgets about what used to be popular.
+     */
+    static final class FrequencySketch {
+        private static final int ROWS = 4;
+        private static final int[] SEEDS = { 0x97cb3127, 0xb6ec3d9f, 0x4f9b8a1d, 0xd94b2a4b };
+        private static final long HALF_MASK = 0x7777777777777777L;
+
+        private final AtomicLongArray table;
+        private final int mask;
+        private final int sampleSize;
+        private final AtomicInteger additions = new AtomicInteger();
+
+        FrequencySketch(int expectedEntries) {
+            var width = Integer.highestOneBit(Math.max(16, expectedEntries - 1) << 1);
+            this.table = new AtomicLongArray(width);
+            this.mask = width - 1;
+            this.sampleSize = 10 * width;
+        }
+
+        int frequency(String key) {
+            var hash = spread(key.hashCode());
+            var frequency = 15;
+            for (int row = 0; row < ROWS; row++) {
+                var h = rehash(hash, row);
+                frequency = Math.min(frequency, (int) (table.get(h & mask) >>> shift(h)) & 15);
+            }
+            return frequency;
+        }
+
+        void increment(String key) {
+            var hash = spread(key.hashCode());
+            for (int row = 0; row < ROWS; row++) {
+                var h = rehash(hash, row);
+                var index = h & mask;
+                var shift = shift(h);
+                long current;
+                do {
+                    current = table.get(index);
+                    if ((current >>> shift & 15) == 15) { break; }
+                } while (!table.compareAndSet(index, current, current + (1L << shift)));
+            }
+            if (additions.incrementAndGet() == sampleSize) {
+                reset();
+            }
+        }
+
+        /*
+         * only the thread which reached the sample-size halves the counters - concurrent increments might get lost,
+         * which doesn't matter for an estimate
+         */
+        private void reset() {
+            for (int i = 0; i < table.length(); i++) {
+                long current;
+                do {
+                    current = table.get(i);
+                } while (!table.compareAndSet(i, current, current >>> 1 & HALF_MASK));
+            }
+            additions.addAndGet(-sampleSize / 2);
+        }
+
+        private static int spread(int hash) {
+            hash ^= hash >>> 17;
+            hash *= 0xed5ad4bb;
+            hash ^= hash >>> 11;
+            return hash;
+        }
+
+        private static int rehash(int hash, int row) {
+            var h = (hash + SEEDS[row]) * 0x9e3779b9;
+            return h ^ h >>> 16;
+        }
+
+        /*
+         * the bits of the hash which aren't used for the index pick one of the 16 counters of the long
+         */
+        private int shift(int h) {
+            return ((h >>> 27) & 15) << 2;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package de.bender.dict.control;
+
+import de.bender.dict.model.Translation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * A local dictionary based on the vocabulary-export of dict.cc (a tab-separated file with one pair of words per line).
+ * The export gets imported once into a compact index-file per language pair which is memory-mapped for lookups:
+ * <pre>
+ *     header:  magic | version | languages of the columns (i.e. "deen") | number of keys
+ *     keys:    int[number of keys]     - offsets of the key-records, sorted by the (normalized) key
+ *     records: key-record  := length | key (UTF-8) | offset of the pair-record
+ *              pair-record := length | first column (UTF-8) | length | second column (UTF-8)
+ * </pre>
+ * Every pair is reachable via both of its columns, so a lookup is a binary search over the (byte-wise sorted) keys
+ * which doesn't have to decode anything but the matching pairs. The distinct keys also end up in a {@link FuzzyIndex}
+ * (next to the index) which suggests known terms for misspelled queries.
+ */
+public class OfflineDictionary {
+
+    public static final Path DEFAULT_LOCATION = Path.of(System.getProperty("user.home"), ".dict", "offline");
+
+    private static final int MAGIC = 0x44494458;    // "DIDX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final Map<Path, OfflineDictionary> OPENED = new ConcurrentHashMap<>();
+
+    private final MappedByteBuffer index;
+    private final String firstColumnLanguage;
+    private final int keyCount;
+
+    private OfflineDictionary(MappedByteBuffer index) throws IOException {
+        if (index.limit() < HEADER_SIZE || index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+            throw new IOException("Not a valid dictionary index");
+        }
+        this.index = index;
+        this.firstColumnLanguage = new String(new byte[]{ index.get(8), index.get(9) }, UTF_8);
+        this.keyCount = index.getInt(12);
+    }
+
+    /**
+     * @return the (shared) dictionary for the given language pair - if there was one imported
+     */
+    public static Optional<OfflineDictionary> forLanguages(Path directory, String from, String to) {
+        var location = location(directory, from, to);
+        if (!Files.isReadable(location)) {
+            return Optional.empty();
+        }
+        return Optional.of(OPENED.computeIfAbsent(location, l -> {
+            try (var channel = FileChannel.open(l, READ)) {
+                return new OfflineDictionary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to open the offline dictionary " + l, e);
+            }
+        }));
+    }
+
+    /*
+     * both directions of a language pair share the same index (i.e. de/en and en/de)
+     */
+    static Path location(Path directory, String from, String to) {
+        var languages = from.compareTo(to) <= 0 ? from + to : to + from;
+        return directory.resolve(languages + ".idx");
+    }
+
+    /**
+     * imports a dict.cc vocabulary export (lines of {@code <first column>\t<second column>[\t...]} - comments start
+     * with {@code #}) and writes the index for the given language pair
+     *
+     * @param from the language of the first column
+     * @param to the language of the second column
+     *
+     * @return the number of imported pairs
+     */
+    public static int importVocabulary(Path vocabulary, Path directory, String from, String to) throws IOException {
+        if (from.length() != 2 || to.length() != 2) {
+            throw new IllegalArgumentException("The languages have to be given as two-letter codes (i.e. de, en)");
+        }
+        var pairs = new ArrayList<byte[][]>();
+        var keys = new ArrayList<Key>();
+        try (var lines = Files.lines(vocabulary, UTF_8)) {
+            lines.filter(l -> !l.isBlank() && !l.startsWith("#"))
+                    .map(l -> l.split("\t"))
+                    .filter(columns -> columns.length >= 2)
+                    .forEach(columns -> {
+                        var pairId = pairs.size();
+                        pairs.add(new byte[][]{ columns[0].strip().getBytes(UTF_8), columns[1].strip().getBytes(UTF_8) });
+                        keys.add(new Key(normalize(columns[0]).getBytes(UTF_8), pairId));
+                        keys.add(new Key(normalize(columns[1]).getBytes(UTF_8), pairId));
+                    });
+        }
+        keys.removeIf(k -> k.key().length == 0);
+        keys.sort(Comparator.<Key, byte[]>comparing(Key::key, Arrays::compareUnsigned).thenComparingInt(Key::pairId));
+
+        // first the pair-records, then the key-records - both directly follow the key-offsets
+        var pairOffsets = new int[pairs.size()];
+        var offset = HEADER_SIZE + 4 * keys.size();
+        for (int i = 0; i < pairs.size(); i++) {
+            pairOffsets[i] = offset;
+            offset += 8 + pairs.get(i)[0].length + pairs.get(i)[1].length;
+        }
+
+        var location = location(directory, from, to);
+        Files.createDirectories(directory);
+        var tmp = Files.createTempFile(directory, "index", ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.write((from + to).getBytes(UTF_8), 0, 4);
+            out.writeInt(keys.size());
+            for (var key : keys) {
+                out.writeInt(offset);
+                offset += 8 + key.key().length;
+            }
+            for (var pair : pairs) {
+                writeBytes(out, pair[0]);
+                writeBytes(out, pair[1]);
+            }
+            for (var key : keys) {
+                writeBytes(out, key.key());
+                out.writeInt(pairOffsets[key.pairId()]);
+            }
+        }
+        Files.move(tmp, location, REPLACE_EXISTING, ATOMIC_MOVE);
+        OPENED.remove(location);
+
+        var terms = new ArrayList<String>();
+        byte[] previous = null;
+        for (var key : keys) {
+            if (Objects.isNull(previous) || !Arrays.equals(previous, key.key())) {
+                terms.add(new String(key.key(), UTF_8));
+                previous = key.key();
+            }
+        }
+        FuzzyIndex.write(terms, fuzzyLocation(directory, from, to));
+        return pairs.size();
+    }
+
+    /**
+     * @return the fuzzy index over the terms of the dictionary for the given language pair - an empty one if there
+     * was none imported
+     */
+    public static FuzzyIndex fuzzyIndex(Path directory, String from, String to) {
+        return FuzzyIndex.open(fuzzyLocation(directory, from, to));
+    }
+
+    static Path fuzzyLocation(Path directory, String from, String to) {
+        var index = location(directory, from, to);
+        return index.resolveSibling(index.getFileName().toString().replace(".idx", ".fuzzy"));
+    }
+
+    /**
+     * looks up all pairs where one of the columns matches the given term exactly - if there are none we fall back
+     * to the pairs where one of the columns starts with the given term
+     *
+     * @param from the language of the term - determines which column ends up as source of the translation
+     * @param limit the maximum number of pairs returned
+     */
+    public Translation lookup(String queryTerm, String from, int limit) {
+        var term = normalize(queryTerm).getBytes(UTF_8);
+        var pairOffsets = collect(term, true, limit);
+        if (pairOffsets.isEmpty()) {
+            pairOffsets = collect(term, false, limit);
+        }
+
+        var firstColumn = new ArrayList<String>(pairOffsets.size());
+        var secondColumn = new ArrayList<String>(pairOffsets.size());
+        for (int pairOffset : pairOffsets) {
+            var length = index.getInt(pairOffset);
+            firstColumn.add(string(pairOffset + 4, length));
+            secondColumn.add(string(pairOffset + 8 + length, index.getInt(pairOffset + 4 + length)));
+        }
+
+        return firstColumnLanguage.equals(from)
+                ? new Translation(queryTerm, firstColumn, secondColumn)
+                : new Translation(queryTerm, secondColumn, firstColumn);
+    }
+
+    private LinkedHashSet<Integer> collect(byte[] term, boolean exact, int limit) {
+        var pairOffsets = new LinkedHashSet<Integer>();
+        for (int i = lowerBound(term); i < keyCount && pairOffsets.size() < limit; i++) {
+            var keyOffset = index.getInt(HEADER_SIZE + 4 * i);
+            var keyLength = index.getInt(keyOffset);
+            if (keyLength < term.length || compare(keyOffset + 4, term.length, term) != 0
+                    || (exact && keyLength != term.length)) {
+                break;
+            }
+            pairOffsets.add(index.getInt(keyOffset + 4 + keyLength));
+        }
+        return pairOffsets;
+    }
+
+    /*
+     * binary search for the first key which is >= the given term
+     */
+    private int lowerBound(byte[] term) {
+        int low = 0;
+        int high = keyCount;
+        while (low < high) {
+            var middle = (low + high) >>> 1;
+            var keyOffset = index.getInt(HEADER_SIZE + 4 * middle);
+            var keyLength = index.getInt(keyOffset);
+            var comparison = compare(keyOffset + 4, keyLength, term);
+            if (comparison < 0 || comparison == 0 && keyLength < term.length) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /*
+     * compares the first bytes of the key at the given position with the term (unsigned, just like the import)
+     */
+    private int compare(int position, int length, byte[] term) {
+        var common = Math.min(length, term.length);
+        for (int i = 0; i < common; i++) {
+            var comparison = Integer.compare(index.get(position + i) & 0xff, term[i] & 0xff);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    private String string(int position, int length) {
+        var bytes = new byte[length];
+        index.get(position, bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /*
+     * dict.cc annotates its entries with word-classes, genders, etc. - i.e. "Haus {n}" - which we ignore for lookups.
+     * This runs for every entry that gets ranked, so it's a single pass instead of a few regular expressions.
+     */
+    public static String normalize(String term) {
+        var normalized = new StringBuilder(term.length());
+        var space = false;
+        for (int i = 0; i < term.length(); i++) {
+            var c = term.charAt(i);
+            var end = c == '{' || c == '[' || c == '<' ? term.indexOf(closing(c), i + 1) : -1;
+            if (end > 0) {
+                i = end;                // an annotation counts as whitespace
+                space = true;
+            } else if (isSpace(c)) {
+                space = true;
+            } else {
+                if (space && !normalized.isEmpty()) {
+                    normalized.append(' ');
+                }
+                space = false;
+                normalized.append(c);
+            }
+        }
+        return normalized.toString().strip().toLowerCase(Locale.ROOT);
+    }
+
+    private static char closing(char opening) {
+        return switch (opening) {
+            case '{' -> '}';
+            case '[' -> ']';
+            default -> '>';
+        };
+    }
+
+    /*
+     * the characters of \s - the ones at the start and end of a term are stripped (like String.strip() does)
+     */
+    static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private record Key(byte[] key, int pairId) { }
+}
@@ -0,0 +1,44 @@
+package de.bender.dict.control;
+
+import de.bender.dict.control.LookupStats.Counter;
+import de.bender.dict.model.Translation;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Looks up the terms in the imported offline dictionaries (see {@link OfflineDictionary}) - it answers within
+ * microseconds, so racing it against dict.cc (see {@code --race}) gives a result right away for the terms it knows.
+ */
+@ApplicationScoped
+public class OfflineProvider implements TranslationProvider {
+
+    public static final String NAME = "offline";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean local() {
+        return true;
+    }
+
+    @Override
+    public boolean canHandle(String from, String to) {
+        return Files.isReadable(OfflineDictionary.location(OfflineDictionary.DEFAULT_LOCATION, from, to));
+    }
+
+    @Override
+    public CompletableFuture<Translation> translate(Dict lookup) {
+        var translation = OfflineDictionary.forLanguages(OfflineDictionary.DEFAULT_LOCATION, lookup.from(), lookup.to())
+                .map(dictionary -> dictionary.lookup(lookup.query(), lookup.from(), Dict.OFFLINE_LIMIT))
+                .orElseGet(() -> new Translation(lookup.query()));
+        if (translation.hasResults()) {
+            lookup.stats().increment(Counter.offlineHits);
+        }
+        return CompletableFuture.completedFuture(translation);
+    }
+}
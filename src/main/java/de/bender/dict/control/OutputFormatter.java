@@ -1,14 +1,39 @@
 package de.bender.dict.control;
 
+import de.bender.dict.model.MultiTranslation;
 import de.bender.dict.model.Translation;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
 public interface OutputFormatter {
 
     boolean canHandle(OutputFormat format);
 
-    String format(Translation translation);
+    /**
+     * writes the formatted translation directly to the given writer (without a trailing line-break) - the writer is
+     * neither flushed nor closed
+     */
+    void write(Translation translation, Writer out) throws IOException;
+
+    /**
+     * writes the translations of a term into several target languages (see {@code --to})
+     */
+    void write(MultiTranslation translations, Writer out) throws IOException;
+
+    default String format(Translation translation) {
+        var out = new StringWriter();
+        try {
+            write(translation, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);      // can't happen with a StringWriter
+        }
+        return out.toString();
+    }
 
     enum OutputFormat {
-        json, raw, alfred
+        json, ndjson, raw, alfred
     }
 }
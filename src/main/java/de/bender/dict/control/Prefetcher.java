@@ -0,0 +1,90 @@
+package de.bender.dict.control;
+
+import de.bender.dict.control.LookupStats.Counter;
+import de.bender.dict.model.Translation;
+
+import java.util.LinkedHashSet;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Looks up the entries of the result shown last in the background - someone working through a text is likely to ask
+ * for one of them next (i.e. "house" after "Haus"). Only the entries of the latest result are of interest: a new one
+ * replaces those which weren't started yet. At most {@code parallelism} prefetches run at once (the requests they send
+ * to dict.cc are paced by the rate-limiter of the lookups) - since lookups share a {@link SingleFlight}, asking for a
+ * term that's being prefetched just joins that request.
+ */
+public class Prefetcher implements AutoCloseable {
+
+    public static final int DEFAULT_LIMIT = 8;
+
+    private final BlockingDeque<String> pending = new LinkedBlockingDeque<>();
+    private final Function<String, CompletableFuture<Translation>> lookup;
+    private final Predicate<String> known;
+    private final Semaphore permits;
+    private final LookupStats stats;
+    private final Thread worker;
+
+    /**
+     * @param lookup starts the lookup of the given term
+     * @param known whether the given (normalized) term doesn't have to be looked up (i.e. because it's cached)
+     */
+    public Prefetcher(Function<String, CompletableFuture<Translation>> lookup, Predicate<String> known,
+                      int parallelism, LookupStats stats) {
+        this.lookup = lookup;
+        this.known = known;
+        this.permits = new Semaphore(Math.max(1, parallelism));
+        this.stats = stats;
+        this.worker = new Thread(this::run, "dict-prefetch");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * schedules the (first {@code limit}) entries of the shown result - the translations first, then the related
+     * entries on the side of the query
+     */
+    public void prefetch(Translation shown, int limit) {
+        var query = OfflineDictionary.normalize(shown.getQuery());
+        var terms = new LinkedHashSet<String>();
+        for (int i = 0; i < shown.pairCount() && terms.size() < limit; i++) {
+            terms.add(OfflineDictionary.normalize(shown.destination(i)));
+        }
+        for (int i = 0; i < shown.pairCount() && terms.size() < limit; i++) {
+            terms.add(OfflineDictionary.normalize(shown.source(i)));
+        }
+        terms.remove(query);
+        terms.remove("");
+
+        pending.clear();
+        pending.addAll(terms);
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                var term = pending.take();
+                if (known.test(term)) { continue; }
+
+                permits.acquire();
+                try {
+                    stats.increment(Counter.prefetches);
+                    lookup.apply(term).whenComplete((translation, failure) -> permits.release());
+                } catch (RuntimeException e) {
+                    permits.release();      // it was just a guess anyway
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();     // we've been closed
+        }
+    }
+
+    @Override
+    public void close() {
+        worker.interrupt();
+    }
+}
@@ -0,0 +1,130 @@
+package de.bender.dict.control;
+
+import de.bender.dict.model.Translation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Asks several providers concurrently - so a slow one doesn't set the latency anymore. Either the first non-empty
+ * translation wins, or the translations of all providers which answered within the merge-budget are merged (if none
+ * of them answered with a non-empty translation by then, the first one which does wins). Once the result is there,
+ * the lookups still running are cancelled.
+ * <p>
+ * The providers don't agree on the order of the columns (the offline dictionaries put the language we translate from
+ * first, dict.cc always has the same order) - so every answer is oriented with the side matching the query as source
+ * before merging (the same way {@link ResultRanker} does it), duplicates are told apart by their normalized entries.
+ */
+final class ProviderRace {
+
+    private final String query;
+    private final CompletableFuture<Translation> result = new CompletableFuture<>();
+    private final Translation[] answers;
+    private final List<Throwable> failures = new ArrayList<>();
+    private int pending;
+    private boolean budgetElapsed;
+
+    private ProviderRace(String query, int providers, boolean merging) {
+        this.query = query;
+        this.answers = new Translation[providers];
+        this.pending = providers;
+        this.budgetElapsed = !merging;
+    }
+
+    /**
+     * @param mergeBudget the time to wait for further translations to be merged - null means the first non-empty
+     * translation wins
+     */
+    static CompletableFuture<Translation> race(String query, List<Supplier<CompletableFuture<Translation>>> lookups, Duration mergeBudget) {
+        var race = new ProviderRace(query, lookups.size(), Objects.nonNull(mergeBudget));
+        var started = new ArrayList<CompletableFuture<Translation>>(lookups.size());
+        for (int i = 0; i < lookups.size(); i++) {
+            var provider = i;
+            var lookup = start(lookups.get(i));
+            started.add(lookup);
+            lookup.whenComplete((translation, failure) -> race.answered(provider, translation, failure));
+        }
+        if (Objects.nonNull(mergeBudget)) {
+            CompletableFuture.delayedExecutor(mergeBudget.toNanos(), NANOSECONDS).execute(race::budgetElapsed);
+        }
+        // the losers (and - if the race itself got cancelled - everyone) aren't of interest anymore
+        race.result.whenComplete((translation, failure) -> started.forEach(lookup -> lookup.cancel(true)));
+        return race.result;
+    }
+
+    private static CompletableFuture<Translation> start(Supplier<CompletableFuture<Translation>> lookup) {
+        try {
+            return lookup.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private synchronized void answered(int provider, Translation translation, Throwable failure) {
+        pending--;
+        if (Objects.isNull(failure)) {
+            answers[provider] = translation;
+        } else {
+            failures.add(failure);
+        }
+        if (pending == 0 || budgetElapsed && Objects.nonNull(translation) && translation.hasResults()) {
+            settle();
+        }
+    }
+
+    private synchronized void budgetElapsed() {
+        budgetElapsed = true;
+        for (Translation answer : answers) {
+            if (Objects.nonNull(answer) && answer.hasResults()) {
+                settle();
+                return;
+            }
+        }
+    }
+
+    /*
+     * merges the pairs of all answers (in the order of the providers, without duplicates) - if all providers failed,
+     * the race failed as well
+     */
+    private void settle() {
+        if (result.isDone()) { return; }
+
+        var normalizedQuery = OfflineDictionary.normalize(query);
+        var merged = new HashSet<String>();
+        var source = new ArrayList<String>();
+        var destination = new ArrayList<String>();
+        var answered = false;
+        for (Translation answer : answers) {
+            if (Objects.isNull(answer)) { continue; }
+            answered = true;
+
+            var pairs = answer.pairCount();
+            var normalized = new String[pairs * 2];
+            for (int i = 0; i < pairs; i++) {
+                normalized[2 * i] = OfflineDictionary.normalize(answer.source(i));
+                normalized[2 * i + 1] = OfflineDictionary.normalize(answer.destination(i));
+            }
+            var reverse = ResultRanker.reversed(normalizedQuery, normalized);
+            for (int i = 0; i < pairs; i++) {
+                var first = normalized[reverse ? 2 * i + 1 : 2 * i];
+                var second = normalized[reverse ? 2 * i : 2 * i + 1];
+                if (merged.add(first + '\t' + second)) {
+                    source.add(reverse ? answer.destination(i) : answer.source(i));
+                    destination.add(reverse ? answer.source(i) : answer.destination(i));
+                }
+            }
+        }
+        if (!answered && !failures.isEmpty()) {
+            result.completeExceptionally(failures.get(0));
+            return;
+        }
+        result.complete(new Translation(query, source, destination));
+    }
+}
@@ -0,0 +1,42 @@
+package de.bender.dict.control;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A minimal rate-limiter which hands out permits at a fixed pace (no bursts) - one pace per host, used to not
+ * overwhelm dict.cc (or our proxy) when translating lots of terms at once. Only the requests which actually go over
+ * the wire ask for a permit (retries and hedges included) - lookups answered by the caches or an offline dictionary
+ * aren't slowed down.
+ */
+public class RateLimiter {
+
+    public static final RateLimiter UNLIMITED = new RateLimiter(0);
+
+    private final long intervalNanos;
+    private final Map<String, AtomicLong> nextPermits = new ConcurrentHashMap<>();
+
+    /**
+     * @param permitsPerSecond the number of permits per second (and host) - anything {@code <= 0} means unlimited
+     */
+    public RateLimiter(double permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+    }
+
+    /**
+     * reserves the next permit for the given host - without blocking the caller
+     *
+     * @return the nanos until the permit is due - the request has to be delayed for that long
+     */
+    public long reserve(String host) {
+        if (intervalNanos == 0) { return 0; }
+
+        var now = System.nanoTime();
+        var nextPermit = nextPermits.computeIfAbsent(Objects.requireNonNullElse(host, ""), h -> new AtomicLong(now));
+        var permit = Math.max(now, nextPermit.getAndAccumulate(now, (next, time) -> Math.max(time, next) + intervalNanos));
+        return permit - now;
+    }
+}
@@ -0,0 +1,222 @@
+package de.bender.dict.control;
+
+import de.bender.dict.model.Translation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Streaming parser for the result-pages of dict.cc. The page contains two JS-variable definitions which hold the
+ * actual translations:
+ * <pre>
+ *     var c1Arr = new Array("","house","home", ...);      // the left column (i.e. the english words)
+ *     var c2Arr = new Array("","Haus","Heim", ...);       // the right column (i.e. the german words)
+ * </pre>
+ * Instead of reading the whole page into memory, we scan the raw bytes for these markers and tokenize the
+ * array-literals in one pass. Once both arrays were found we stop reading - the rest of the page is of no interest.
+ * The columns are kept in page order (c2 as source, c1 as destination) no matter which direction was asked for -
+ * dict.cc matches the query on both sides, so which side it matched is decided when ranking (see {@link ResultRanker}).
+ */
+final class ResultParser {
+
+    private static final byte[] MARKER = "var c".getBytes(UTF_8);
+    private static final byte[] ARRAY = "Arr".getBytes(UTF_8);
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[8192];
+    private int position;
+    private int limit;
+
+    private byte[] token = new byte[64];
+    private int tokenLength;
+    private int highSurrogate;
+
+    private ResultParser(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * parses the given page - the stream is not closed by this method (but might not be consumed completely)
+     */
+    static Translation parse(String queryTerm, InputStream page) throws IOException {
+        return new ResultParser(page).parse(queryTerm);
+    }
+
+    private Translation parse(String queryTerm) throws IOException {
+        List<String> destination = null;
+        List<String> source = null;
+
+        int column;
+        while ((destination == null || source == null) && (column = nextArray()) > 0) {
+            if (column == 1) {
+                destination = readArray();
+            } else {
+                source = readArray();
+            }
+        }
+
+        return new Translation(queryTerm,
+                source != null ? source : List.of(),
+                destination != null ? destination : List.of());
+    }
+
+    /*
+     * skips forward until the next "var c<n>Arr" marker and returns the column-number <n> (or -1 at the end of the page)
+     */
+    private int nextArray() throws IOException {
+        int matched = 0;
+        int b;
+        while ((b = read()) >= 0) {
+            if (matched < MARKER.length) {
+                matched = b == MARKER[matched] ? matched + 1 : (b == MARKER[0] ? 1 : 0);
+                continue;
+            }
+            // we've seen "var c" - now we expect the column-number followed by "Arr"
+            var column = b - '0';
+            if ((column == 1 || column == 2) && expect(ARRAY)) {
+                return column;
+            }
+            matched = b == MARKER[0] ? 1 : 0;
+        }
+        return -1;
+    }
+
+    private boolean expect(byte[] expected) throws IOException {
+        for (byte e : expected) {
+            if (read() != e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * tokenizes the array literal - i.e. new Array("a","b\"c",...) - empty entries are skipped
+     */
+    private List<String> readArray() throws IOException {
+        int b;
+        while ((b = read()) >= 0 && b != '(') {
+            if (b == ';' || b == '\n') { return List.of(); }        // not an array-definition after all
+        }
+
+        var values = new ArrayList<String>();
+        while ((b = read()) >= 0 && b != ')') {
+            if (b == '"' || b == '\'') {
+                readString(b);
+                if (tokenLength > 0) {
+                    values.add(new String(token, 0, tokenLength, UTF_8));
+                }
+            }
+        }
+        return values;
+    }
+
+    /*
+     * reads a JS string-literal (until the unescaped quote) into the token-buffer - escape-sequences are decoded
+     * (the characters of \\uXXXX and \\xXX end up UTF-8 encoded, just like the rest of the page)
+     */
+    private void readString(int quote) throws IOException {
+        tokenLength = 0;
+        highSurrogate = -1;
+        int b;
+        while ((b = read()) >= 0 && b != quote) {
+            if (b == '\\') {
+                b = read();
+                if (b < 0) { break; }
+                if (b == 'u' || b == 'x') {
+                    appendUnit(hex(b == 'u' ? 4 : 2));
+                    continue;
+                }
+                b = switch (b) {
+                    case 'n' -> '\n';
+                    case 't' -> '\t';
+                    case 'r' -> '\r';
+                    case 'b' -> '\b';
+                    case 'f' -> '\f';
+                    case 'v' -> 0x0b;
+                    case '0' -> 0;
+                    default -> b;       // \", \', \\, \/ - and everything else just stands for itself
+                };
+            }
+            if (highSurrogate >= 0) { appendUnit(-1); }
+            append(b);
+        }
+        if (highSurrogate >= 0) { appendUnit(-1); }
+    }
+
+    /*
+     * the (hex-)digits of an escape-sequence - or -1 if they aren't any
+     */
+    private int hex(int digits) throws IOException {
+        var value = 0;
+        for (int i = 0; i < digits; i++) {
+            var digit = Character.digit(read(), 16);
+            if (digit < 0) { return -1; }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    /*
+     * appends a UTF-16 code-unit - a high surrogate waits for its low one (an unpaired one becomes U+FFFD)
+     */
+    private void appendUnit(int unit) {
+        if (Character.isLowSurrogate((char) unit) && highSurrogate >= 0) {
+            appendCodePoint(Character.toCodePoint((char) highSurrogate, (char) unit));
+            highSurrogate = -1;
+            return;
+        }
+        if (highSurrogate >= 0) {
+            appendCodePoint(0xfffd);
+            highSurrogate = -1;
+        }
+        if (unit < 0) { return; }
+        if (Character.isHighSurrogate((char) unit)) {
+            highSurrogate = unit;
+        } else {
+            appendCodePoint(Character.isLowSurrogate((char) unit) ? 0xfffd : unit);
+        }
+    }
+
+    private void appendCodePoint(int codePoint) {
+        if (codePoint < 0x80) {
+            append(codePoint);
+        } else if (codePoint < 0x800) {
+            append(0xc0 | codePoint >> 6);
+            append(0x80 | codePoint & 0x3f);
+        } else if (codePoint < 0x10000) {
+            append(0xe0 | codePoint >> 12);
+            append(0x80 | codePoint >> 6 & 0x3f);
+            append(0x80 | codePoint & 0x3f);
+        } else {
+            append(0xf0 | codePoint >> 18);
+            append(0x80 | codePoint >> 12 & 0x3f);
+            append(0x80 | codePoint >> 6 & 0x3f);
+            append(0x80 | codePoint & 0x3f);
+        }
+    }
+
+    private void append(int b) {
+        if (tokenLength == token.length) {
+            token = Arrays.copyOf(token, token.length * 2);
+        }
+        token[tokenLength++] = (byte) b;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++] & 0xff;
+    }
+}
@@ -0,0 +1,181 @@
+package de.bender.dict.control;
+
+import de.bender.dict.model.MultiTranslation;
+import de.bender.dict.model.Translation;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Picks the most relevant pairs of a translation (instead of just the first ones in page order) - a pair scores by
+ * <ul>
+ *     <li>an exact match of the query (on either side), a match on a word-boundary or at least a prefix-match</li>
+ *     <li>the number of times its entries were looked up locally (see {@link TranslationCache#usage})</li>
+ *     <li>its length - shorter entries are more likely the ones we're after</li>
+ * </ul>
+ * Ties are broken by page order (which already reflects the votes on dict.cc). Only the best {@code limit} pairs are
+ * kept in a bounded heap while streaming through the pairs - so formatting doesn't depend on the size of the page.
+ * The entries are normalized once and their usage is fetched in one go for the whole translation.
+ * <p>
+ * dict.cc answers a query in both directions (the page for {@code de/en} and {@code en/de} is the same) and its
+ * columns are always in the same order - so while streaming through the pairs we also note which side matched the
+ * query. That side ends up as source: for the whole translation (the side most pairs matched on) or - in
+ * bidirectional mode - for every single pair (so matches in both languages show up with the query first).
+ */
+public class ResultRanker {
+
+    public static final int DEFAULT_LIMIT = 20;
+
+    private static final int EXACT_MATCH = 1_000;
+    private static final int WORD_MATCH = 500;
+    private static final int PREFIX_MATCH = 200;
+    private static final int USAGE = 40;
+    private static final int MAX_USAGE = 5;
+    private static final int MAX_LENGTH_PENALTY = 100;
+
+    /*
+     * the worst of the kept pairs is on top of the heap - so it's the one to be dropped for a better one
+     */
+    private static final Comparator<Scored> WORST_FIRST = Comparator.comparingInt(Scored::score)
+            .thenComparing(Comparator.comparingInt(Scored::index).reversed());
+
+    private final int limit;
+    private final Usage usage;
+    private final boolean bidirectional;
+
+    /**
+     * the local usage of the entries of a translation (i.e. {@link TranslationCache#usage})
+     */
+    @FunctionalInterface
+    public interface Usage {
+        Usage NONE = terms -> Map.of();
+
+        /**
+         * @return the number of times each of the given (normalized) terms was looked up - terms which never were
+         * may be left out
+         */
+        Map<String, Integer> of(Collection<String> terms);
+    }
+
+    /**
+     * @param limit the maximum number of pairs kept (0 means unlimited)
+     * @param usage the number of times the (normalized) entries were looked up locally
+     */
+    public ResultRanker(int limit, Usage usage) {
+        this(limit, usage, false);
+    }
+
+    private ResultRanker(int limit, Usage usage, boolean bidirectional) {
+        this.limit = limit > 0 ? limit : Integer.MAX_VALUE;
+        this.usage = usage;
+        this.bidirectional = bidirectional;
+    }
+
+    /**
+     * @return a ranker which keeps another number of pairs (but ranks by the same usage)
+     */
+    public ResultRanker withLimit(int limit) {
+        return new ResultRanker(limit, usage, bidirectional);
+    }
+
+    /**
+     * @return a ranker which orients every pair on its own (instead of the translation as a whole)
+     */
+    public ResultRanker withBidirectional(boolean bidirectional) {
+        return new ResultRanker(limit, usage, bidirectional);
+    }
+
+    /**
+     * @return a translation with the best pairs only - ordered by relevance, the side matching the query first
+     */
+    public Translation rank(Translation translation) {
+        var query = OfflineDictionary.normalize(translation.getQuery());
+        var pairs = translation.pairCount();
+        var normalized = new String[pairs * 2];
+        for (int i = 0; i < pairs; i++) {
+            normalized[2 * i] = OfflineDictionary.normalize(translation.source(i));
+            normalized[2 * i + 1] = OfflineDictionary.normalize(translation.destination(i));
+        }
+        var usages = pairs == 0 ? Map.<String, Integer>of() : usage.of(Arrays.asList(normalized));
+
+        var best = new PriorityQueue<>(Math.min(limit, pairs) + 1, WORST_FIRST);
+        for (int i = 0; i < pairs; i++) {
+            best.add(score(i, query, normalized[2 * i], normalized[2 * i + 1], usages));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        var reverseAll = !bidirectional && reversed(query, normalized);
+        var count = best.size();
+        var source = new String[count];
+        var destination = new String[count];
+        for (int i = count - 1; i >= 0; i--) {
+            var pair = best.poll();
+            var reverse = bidirectional ? pair.side() > 0 : reverseAll;
+            source[i] = reverse ? translation.destination(pair.index()) : translation.source(pair.index());
+            destination[i] = reverse ? translation.source(pair.index()) : translation.destination(pair.index());
+        }
+        return translation.withPairs(Arrays.asList(source), Arrays.asList(destination));
+    }
+
+    public MultiTranslation rank(MultiTranslation translations) {
+        var ranked = new LinkedHashMap<String, Translation>();
+        translations.getTranslations().forEach((target, translation) -> ranked.put(target, rank(translation)));
+        return new MultiTranslation(translations.getQuery(), translations.getFrom(), ranked);
+    }
+
+    /**
+     * dict.cc doesn't tell which of its columns is the language of the query - so the side most pairs matched the
+     * query on is taken as source
+     *
+     * @param query the normalized query
+     * @param normalized the normalized entries of the pairs - source and destination alternating
+     * @return whether the query matched the destinations of the pairs more often than their sources - i.e. the pairs
+     * have to be reversed to have the query first
+     */
+    static boolean reversed(String query, String[] normalized) {
+        var reversedMatches = 0;
+        for (int i = 0; i + 1 < normalized.length; i += 2) {
+            reversedMatches += Integer.signum(match(query, normalized[i + 1]) - match(query, normalized[i]));
+        }
+        return reversedMatches > 0;
+    }
+
+    /*
+     * the side of the pair which matched the query (better) - 1 for its destination, -1 for its source, 0 for neither
+     */
+    private static Scored score(int index, String query, String normalizedSource, String normalizedDestination, Map<String, Integer> usages) {
+        var sourceMatch = match(query, normalizedSource);
+        var destinationMatch = match(query, normalizedDestination);
+        var frequency = usages.getOrDefault(normalizedSource, 0) + usages.getOrDefault(normalizedDestination, 0);
+        var score = Math.max(sourceMatch, destinationMatch)
+                + USAGE * Math.min(frequency, MAX_USAGE)
+                - Math.min(normalizedSource.length() + normalizedDestination.length(), MAX_LENGTH_PENALTY);
+        return new Scored(index, score, Integer.signum(destinationMatch - sourceMatch));
+    }
+
+    private static int match(String query, String entry) {
+        if (query.isEmpty()) {
+            return 0;
+        }
+        if (entry.equals(query)) {
+            return EXACT_MATCH;
+        }
+        for (int from = entry.indexOf(query); from >= 0; from = entry.indexOf(query, from + 1)) {
+            var end = from + query.length();
+            var startsWord = from == 0 || !Character.isLetterOrDigit(entry.charAt(from - 1));
+            var endsWord = end == entry.length() || !Character.isLetterOrDigit(entry.charAt(end));
+            if (startsWord && endsWord) {
+                return WORD_MATCH;
+            }
+        }
+        return entry.startsWith(query) ? PREFIX_MATCH : 0;
+    }
+
+    private record Scored(int index, int score, int side) { }
+}
@@ -0,0 +1,105 @@
+package de.bender.dict.control;
+
+import de.bender.dict.control.LookupStats.Counter;
+import de.bender.dict.model.Translation;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent lookups of the same term (i.e. duplicate lines in batch-mode or several clients of the
+ * server typing the same word) - only the first caller asks dict.cc, everyone else who asks while that request is
+ * still running joins it. Every caller gets its own future, so cancelling one of them doesn't affect the others -
+ * the request itself is only cancelled once all of its callers gave up on it.
+ */
+public class SingleFlight {
+
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param key the normalized query (see {@link TranslationCache#key})
+     * @param lookup starts the actual lookup - only called if there's no lookup for the key in flight already
+     */
+    public CompletableFuture<Translation> execute(String key, LookupStats stats, Supplier<CompletableFuture<Translation>> lookup) {
+        while (true) {
+            var running = inFlight.get(key);
+            if (Objects.nonNull(running) && running.join()) {
+                stats.increment(Counter.coalesced);
+                return running.follow();
+            }
+
+            var flight = new Flight();
+            var claimed = Objects.isNull(running)
+                    ? Objects.isNull(inFlight.putIfAbsent(key, flight))
+                    : inFlight.replace(key, running, flight);
+            if (claimed) {
+                stats.increment(Counter.flights);
+                flight.join();
+                var follower = flight.follow();
+                flight.start(start(lookup), () -> inFlight.remove(key, flight));
+                return follower;
+            }
+        }
+    }
+
+    private static CompletableFuture<Translation> start(Supplier<CompletableFuture<Translation>> lookup) {
+        try {
+            return lookup.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    int size() {
+        return inFlight.size();
+    }
+
+    private static class Flight {
+        private final CompletableFuture<Translation> result = new CompletableFuture<>();
+        private final AtomicInteger followers = new AtomicInteger();
+        private volatile CompletableFuture<Translation> lookup;
+
+        /*
+         * a flight whose followers all gave up (and which got cancelled therefore) can't be joined anymore
+         */
+        boolean join() {
+            int current;
+            do {
+                current = followers.get();
+                if (current < 0) { return false; }
+            } while (!followers.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        CompletableFuture<Translation> follow() {
+            var follower = result.copy();
+            follower.whenComplete((translation, failure) -> {
+                if (follower.isCancelled() && followers.decrementAndGet() == 0 && followers.compareAndSet(0, -1)) {
+                    result.cancel(true);
+                    var running = lookup;
+                    if (Objects.nonNull(running)) { running.cancel(true); }
+                }
+            });
+            return follower;
+        }
+
+        void start(CompletableFuture<Translation> lookup, Runnable landed) {
+            this.lookup = lookup;
+            result.whenComplete((translation, failure) -> landed.run());
+            lookup.whenComplete((translation, failure) -> {
+                if (Objects.isNull(failure)) {
+                    result.complete(translation);
+                } else {
+                    result.completeExceptionally(failure);
+                }
+            });
+            if (result.isCancelled()) {
+                lookup.cancel(true);
+            }
+        }
+    }
+}
@@ -1,15 +1,19 @@
 package de.bender.dict.control;
 
+import de.bender.dict.model.MultiTranslation;
 import de.bender.dict.model.Translation;
 
 import javax.enterprise.context.ApplicationScoped;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Objects;
 
 @ApplicationScoped
 public class StandardOutputFormatter implements OutputFormatter {
 
-    private static final int MAX_RESULTS = 20;
     private static final int HALF_LINE = 50;
     private static final int FULL_LINE = 100;
+    private static final String SEPARATOR = "=".repeat(FULL_LINE);
 
     @Override
     public boolean canHandle(OutputFormat format) {
@@ -17,28 +21,46 @@ public class StandardOutputFormatter implements OutputFormatter {
     }
 
     @Override
-    public String format(Translation translation) {
-        StringBuilder out = new StringBuilder();
+    public void write(Translation translation, Writer out) throws IOException {
+        out.append("Term: ").append(translation.getQuery());
+        if (Objects.nonNull(translation.getCorrectedFrom())) {
+            out.append(" (no translation for '").append(translation.getCorrectedFrom()).append("')");
+        }
+        out.append("\n");
+        out.append(SEPARATOR).append("\n");
+        writeResults(translation, out);
+        if (!translation.getSuggestions().isEmpty()) {
+            out.append("\nDid you mean: ").append(String.join(", ", translation.getSuggestions())).append("?");
+        }
+    }
 
-        out.append("Term: ").append(translation.getQuery()).append("\n");
-        out.append("=".repeat(FULL_LINE)).append("\n");
+    @Override
+    public void write(MultiTranslation translations, Writer out) throws IOException {
+        out.append("Term: ").append(translations.getQuery()).append("\n");
+        out.append(SEPARATOR).append("\n");
+        var separator = "";
+        for (var target : translations.getTranslations().entrySet()) {
+            out.append(separator);
+            out.append(translations.getFrom()).append(" -> ").append(target.getKey()).append("\n");
+            out.append("-".repeat(FULL_LINE)).append("\n");
+            writeResults(target.getValue(), out);
+            separator = "\n";
+        }
+    }
 
-        if (translation.getSource().isEmpty() || translation.getDestination().isEmpty()) {
+    private void writeResults(Translation translation, Writer out) throws IOException {
+        if (!translation.hasResults()) {
             out.append("Not Found");
-        } else {
-            var englishWords = translation.getDestination();
-            var germanWords = translation.getSource();
-            var max_iteration = Math.min(MAX_RESULTS,
-                    Math.min(englishWords.size(), germanWords.size()));
-
-            for (int i = 0; i < max_iteration; i++) {
-                out.append(englishWords.get(i))
-                        .append(" ".repeat(HALF_LINE - englishWords.get(i).length() > 0 ? HALF_LINE - englishWords.get(i).length() : 1))
-                        .append(germanWords.get(i))
-                        .append("\n");
-            }
+            return;
         }
 
-        return out.toString();
+        for (int i = 0; i < translation.pairCount(); i++) {        // already ranked and limited - see ResultRanker
+            var english = translation.destination(i);
+            out.append(english);
+            for (int padding = Math.max(HALF_LINE - english.length(), 1); padding > 0; padding--) {
+                out.write(' ');
+            }
+            out.append(translation.source(i)).append("\n");
+        }
     }
 }
@@ -0,0 +1,481 @@
+package de.bender.dict.control;
+
+import de.bender.dict.model.Translation;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiConsumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * A persistent, size-bounded LRU-cache for translations which lives in a compact binary file (by default in
+ * {@code ~/.dict/cache.bin}). The file is memory-mapped when loading - only the keys are read, every entry just points
+ * at the bytes of its translation which get decoded once it's asked for. Saving re-writes the file as a whole (the
+ * untouched entries are copied over byte by byte) - into a new file, so the mapping of the old one stays valid.
+ * Expired entries aren't served by {@link #get} but are kept (until evicted) as fallback while dict.cc is down.
+ * Every entry counts how often it was looked up - which tells us what's relevant to the user (see {@link #usage}).
+ * A hit alone doesn't re-write the file though: its key is appended to a small usage-log next to it
+ * ({@code cache.bin.usage}), which is replayed when loading and folded into the file by the next full write.
+ */
+public class TranslationCache {
+
+    public static final Path DEFAULT_LOCATION = Path.of(System.getProperty("user.home"), ".dict", "cache.bin");
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+    public static final Duration DEFAULT_TTL = Duration.ofDays(7);
+
+    private static final int MAGIC = 0x44494354;    // "DICT"
+    private static final int VERSION = 3;
+    private static final int VERSION_WITHOUT_LENGTH = 2;
+    private static final int VERSION_WITHOUT_LOOKUPS = 1;
+
+    private final Path location;
+    private final int maxEntries;
+    private final Duration ttl;
+    private final LinkedHashMap<String, Entry> entries;
+    private final Map<String, Integer> usage = new HashMap<>();
+    private final List<String> hits = new ArrayList<>();
+    private final Queue<String> touched = new ConcurrentLinkedQueue<>();
+    private boolean dirty;
+
+    TranslationCache(Path location, int maxEntries, Duration ttl) {
+        this.location = location;
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                var evict = size() > TranslationCache.this.maxEntries;
+                if (evict) {
+                    count(eldest.getKey(), -eldest.getValue().lookups);
+                }
+                return evict;
+            }
+        };
+    }
+
+    /**
+     * opens (or creates) the cache at the given location - a missing or unreadable file just results in an empty cache
+     */
+    public static TranslationCache open(Path location, int maxEntries, Duration ttl) {
+        var cache = new TranslationCache(location, maxEntries, ttl);
+        if (Files.isReadable(location)) {
+            try {
+                cache.load();
+            } catch (IOException | RuntimeException e) {
+                cache.entries.clear();      // a corrupt cache is no reason to fail - we'll just re-populate it
+                cache.usage.clear();
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * a cache which lives in memory only (i.e. for a REPL-session with --no-cache) - {@link #save} doesn't do anything
+     */
+    public static TranslationCache inMemory(int maxEntries, Duration ttl) {
+        return new TranslationCache(null, maxEntries, ttl);
+    }
+
+    public synchronized Optional<Translation> get(String from, String to, String query) {
+        var key = key(from, to, query);
+        var entry = entries.get(key);
+        if (Objects.isNull(entry) || isExpired(entry)) {
+            return Optional.empty();
+        }
+        entry.lookups++;
+        count(key, 1);
+        hits.add(key);
+        return Optional.of(entry.translation());
+    }
+
+    /**
+     * counts a lookup which was answered from the {@link MemoryCache} in front of this cache - without taking the
+     * lock, the lookup is only noted and counted along with the next call which needs the counts
+     */
+    public void touch(String from, String to, String query) {
+        touched.add(key(from, to, query));
+    }
+
+    private void countTouched() {
+        for (var key = touched.poll(); Objects.nonNull(key); key = touched.poll()) {
+            var entry = entries.get(key);
+            if (Objects.nonNull(entry)) {
+                entry.lookups++;
+                count(key, 1);
+                hits.add(key);
+            }
+        }
+    }
+
+    /**
+     * @return when the cached translation was looked up (in millis since the epoch) - if there is one
+     */
+    public synchronized OptionalLong storedAt(String from, String to, String query) {
+        var entry = entries.get(key(from, to, query));
+        return Objects.isNull(entry) ? OptionalLong.empty() : OptionalLong.of(entry.storedAt);
+    }
+
+    /**
+     * @return the cached translation - no matter whether it's expired already
+     */
+    public synchronized Optional<Translation> getStale(String from, String to, String query) {
+        return Optional.ofNullable(entries.get(key(from, to, query))).map(Entry::translation);
+    }
+
+    public synchronized void put(String from, String to, Translation translation) {
+        var key = key(from, to, translation.getQuery());
+        var previous = entries.get(key);
+        var lookups = Objects.isNull(previous) ? 1 : previous.lookups + 1;
+        entries.put(key, new Entry(translation, System.currentTimeMillis(), lookups));
+        count(key, 1);
+        dirty = true;
+    }
+
+    /**
+     * @return how often each of the given (normalized) terms was looked up (in any language pair) - as long as it's
+     * cached, terms which never were are left out
+     */
+    public synchronized Map<String, Integer> usage(Collection<String> terms) {
+        countTouched();
+        var counts = new HashMap<String, Integer>();
+        for (String term : terms) {
+            var count = usage.get(term);
+            if (Objects.nonNull(count)) {
+                counts.put(term, count);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @return the (normalized) queries of the language pair which were translated successfully
+     */
+    public synchronized List<String> knownTerms(String from, String to) {
+        var prefix = key(from, to, "");
+        var terms = new ArrayList<String>();
+        entries.forEach((key, entry) -> {
+            if (key.startsWith(prefix) && entry.hasResults) {
+                terms.add(key.substring(prefix.length()));
+            }
+        });
+        return terms;
+    }
+
+    private void count(String key, int lookups) {
+        usage.merge(key.substring(key.indexOf('|', key.indexOf('|') + 1) + 1), lookups, (a, b) -> a + b > 0 ? a + b : null);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * writes the cache back to disk (only if it was changed) - we write to a temporary file first and move it
+     * into place afterwards so that concurrent CLI invocations never see a half-written cache. If there were hits only,
+     * their keys are just appended to the usage-log.
+     */
+    public synchronized void save() throws IOException {
+        if (Objects.isNull(location)) { return; }
+        countTouched();
+
+        if (dirty) {
+            write(location, entries);
+            Files.deleteIfExists(usageLog());        // the lookups are part of the file now
+            dirty = false;
+        } else if (!hits.isEmpty()) {
+            Files.write(usageLog(), hits, UTF_8, CREATE, APPEND);
+        }
+        hits.clear();
+    }
+
+    /**
+     * writes a snapshot of all (not yet expired) translations to the given file - it has the same format as the cache
+     * itself, so it can be imported on another machine (see {@link #importSnapshot}) or just be used as cache-file
+     *
+     * @return the number of exported translations
+     */
+    public synchronized int exportSnapshot(Path target) throws IOException {
+        var snapshot = new LinkedHashMap<String, Entry>();
+        entries.forEach((key, entry) -> {
+            if (!isExpired(entry)) {
+                snapshot.put(key, entry);
+            }
+        });
+        write(target, snapshot);
+        return snapshot.size();
+    }
+
+    /**
+     * merges the translations of a snapshot (see {@link #exportSnapshot}) into the cache - the file is memory-mapped
+     * and only its keys are decoded (the imported entries point at their bytes, just like the ones loaded from the
+     * cache-file), entries we already know are only replaced by more recent ones
+     *
+     * @return the number of imported translations
+     */
+    public synchronized int importSnapshot(Path snapshot) throws IOException {
+        var imported = new int[1];
+        var valid = read(snapshot, (key, entry) -> {
+            var existing = entries.get(key);
+            if (Objects.nonNull(existing) && existing.storedAt >= entry.storedAt) {
+                return;
+            }
+            if (Objects.nonNull(existing)) {
+                count(key, -existing.lookups);
+            }
+            entries.put(key, entry);
+            count(key, entry.lookups);
+            imported[0]++;
+        });
+        if (!valid) {
+            throw new IOException(snapshot + " is no snapshot of the translation cache");
+        }
+        dirty |= imported[0] > 0;
+        return imported[0];
+    }
+
+    private void load() throws IOException {
+        read(location, (key, entry) -> {
+            entries.put(key, entry);
+            count(key, entry.lookups);
+        });
+        replayUsage();
+    }
+
+    /*
+     * the hits since the file was written last - replaying them also restores the LRU-order. A log which outgrew the
+     * cache is folded into the file with the next save.
+     */
+    private void replayUsage() throws IOException {
+        if (!Files.isReadable(usageLog())) {
+            return;
+        }
+        var replayed = Files.readAllLines(usageLog(), UTF_8);
+        for (String key : replayed) {
+            var entry = entries.get(key);
+            if (Objects.nonNull(entry)) {
+                entry.lookups++;
+                count(key, 1);
+            }
+        }
+        dirty = replayed.size() > maxEntries;
+    }
+
+    private Path usageLog() {
+        return location.resolveSibling(location.getFileName() + ".usage");
+    }
+
+    private static void write(Path target, Map<String, Entry> entries) throws IOException {
+        var directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        var tmp = Files.createTempFile(directory, "cache", ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            var encoded = new ByteArrayOutputStream();
+            var scratch = new byte[8192];
+            for (var entry : entries.entrySet()) {      // iteration order == LRU order, so we keep that on reload
+                writeString(out, entry.getKey());
+                out.writeLong(entry.getValue().storedAt);
+                out.writeInt(entry.getValue().lookups);
+                var bytes = entry.getValue().encoded(encoded);
+                out.writeInt(bytes.remaining());
+                while (bytes.hasRemaining()) {
+                    var chunk = Math.min(scratch.length, bytes.remaining());
+                    bytes.get(scratch, 0, chunk);
+                    out.write(scratch, 0, chunk);
+                }
+            }
+        }
+        Files.move(tmp, target, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    /*
+     * hands all entries of the (memory-mapped) file to the consumer - returns false if it isn't a cache-file at all.
+     * Only the keys are decoded, the entries point at the bytes of their translations within the mapping.
+     */
+    private static boolean read(Path file, BiConsumer<String, Entry> consumer) throws IOException {
+        try (var channel = FileChannel.open(file, READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 12 || buffer.getInt() != MAGIC) {
+                return false;
+            }
+            var version = buffer.getInt();
+            if (version != VERSION && version != VERSION_WITHOUT_LENGTH && version != VERSION_WITHOUT_LOOKUPS) {
+                return false;
+            }
+            var count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                var key = readString(buffer);
+                var storedAt = buffer.getLong();
+                var lookups = version == VERSION_WITHOUT_LOOKUPS ? 1 : buffer.getInt();
+                var length = version == VERSION ? buffer.getInt() : encodedLength(buffer);
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new BufferUnderflowException();
+                }
+                var encoded = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+
+                consumer.accept(key, new Entry(encoded, storedAt, lookups));
+            }
+            return true;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated cache file " + file, e);
+        }
+    }
+
+    /*
+     * older files don't store the length of a translation - we have to step through its strings
+     */
+    private static int encodedLength(ByteBuffer buffer) {
+        var position = buffer.position();
+        var end = position + 4 + buffer.getInt(position);
+        for (int list = 0; list < 2; list++) {
+            var size = buffer.getInt(end);
+            end += 4;
+            for (int i = 0; i < size; i++) {
+                end += 4 + buffer.getInt(end);
+            }
+        }
+        return end - position;
+    }
+
+    private boolean isExpired(Entry entry) {
+        return System.currentTimeMillis() - entry.storedAt > ttl.toMillis();
+    }
+
+    /*
+     * dict.cc answers both directions of a language pair with the same page - so {@code de/en} and {@code en/de}
+     * share one entry (the columns are oriented when ranking, see {@link ResultRanker})
+     */
+    static String key(String from, String to, String query) {
+        return from.compareTo(to) <= 0
+                ? from + '|' + to + '|' + normalize(query)
+                : to + '|' + from + '|' + normalize(query);
+    }
+
+    static String normalize(String query) {
+        var normalized = new StringBuilder(query.length());
+        var space = false;
+        for (int i = 0; i < query.length(); i++) {
+            var c = query.charAt(i);
+            if (OfflineDictionary.isSpace(c)) {
+                space = true;
+                continue;
+            }
+            if (space && !normalized.isEmpty()) {
+                normalized.append(' ');
+            }
+            space = false;
+            normalized.append(c);
+        }
+        return normalized.toString().strip().toLowerCase(Locale.ROOT);
+    }
+
+    private static Translation decode(ByteBuffer buffer) {
+        return new Translation(readString(buffer), readStrings(buffer), readStrings(buffer));
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        var bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static List<String> readStrings(ByteBuffer buffer) {
+        var size = buffer.getInt();
+        var values = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(buffer));
+        }
+        return values;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        var bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /*
+     * a translation read from a file is decoded lazily - until then the entry just points at its bytes (and they're
+     * copied over as they are when saving). Entries are only touched while holding the lock of the cache.
+     */
+    private static final class Entry {
+        private final long storedAt;
+        private final boolean hasResults;
+        private final ByteBuffer encoded;
+        private Translation translation;
+        private int lookups;
+
+        Entry(Translation translation, long storedAt, int lookups) {
+            this.translation = translation;
+            this.encoded = null;
+            this.hasResults = translation.hasResults();
+            this.storedAt = storedAt;
+            this.lookups = lookups;
+        }
+
+        Entry(ByteBuffer encoded, long storedAt, int lookups) {
+            this.encoded = encoded;
+            this.hasResults = encoded.getInt(4 + encoded.getInt(0)) > 0;       // the number of sources follows the query
+            this.storedAt = storedAt;
+            this.lookups = lookups;
+        }
+
+        Translation translation() {
+            if (Objects.isNull(translation)) {
+                translation = decode(encoded.duplicate());
+            }
+            return translation;
+        }
+
+        /*
+         * the bytes of the translation (query, sources, destinations) - the ones we've read or freshly encoded ones
+         */
+        ByteBuffer encoded(ByteArrayOutputStream scratch) throws IOException {
+            if (Objects.nonNull(encoded)) {
+                return encoded.duplicate();
+            }
+            scratch.reset();
+            var out = new DataOutputStream(scratch);
+            writeString(out, translation.getQuery());
+            writeStrings(out, translation.getSource());
+            writeStrings(out, translation.getDestination());
+            return ByteBuffer.wrap(scratch.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package de.bender.dict.control;
+
+import de.bender.dict.model.Translation;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A source of translations - dict.cc ({@link DictCcProvider}) and the imported offline dictionaries
+ * ({@link OfflineProvider}) are built in, further ones are picked up as CDI-beans (just like the
+ * {@link OutputFormatter}s) and can be chosen by their name (see {@code --provider}). Caching, coalescing and the
+ * fallback to stale translations are taken care of by {@link Dict} - a provider just has to look up the term.
+ */
+public interface TranslationProvider {
+
+    /**
+     * @return the (unique) name to choose the provider by
+     */
+    String name();
+
+    /**
+     * @return whether the provider translates between the given languages at all (i.e. there's an offline dictionary)
+     */
+    boolean canHandle(String from, String to);
+
+    /**
+     * @return whether the provider answers right away from local data (i.e. the offline dictionaries) - those are
+     * asked before the caches (unless the providers are raced) and are left out by {@code --source online}
+     */
+    default boolean local() {
+        return false;
+    }
+
+    /**
+     * starts the lookup of {@link Dict#query()} - cancelling the returned future is supposed to abort it
+     */
+    CompletableFuture<Translation> translate(Dict lookup);
+}
@@ -0,0 +1,46 @@
+package de.bender.dict.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The result of translating one term into several target languages at once - the translations are kept in the
+ * order of the requested targets
+ */
+public class MultiTranslation {
+
+    private final String query;
+    private final String from;
+    private final Map<String, Translation> translations;
+
+    public MultiTranslation(String queryTerm, String from, Map<String, Translation> translations) {
+        this.query = queryTerm;
+        this.from = from;
+        this.translations = Collections.unmodifiableMap(new LinkedHashMap<>(translations));
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    /**
+     * @return the translations by target language
+     */
+    public Map<String, Translation> getTranslations() {
+        return translations;
+    }
+
+    @Override
+    public String toString() {
+        return "MultiTranslation{" +
+                "query='" + query + '\'' +
+                ", from='" + from + '\'' +
+                ", translations=" + translations +
+                '}';
+    }
+}
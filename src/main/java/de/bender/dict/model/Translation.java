@@ -1,21 +1,67 @@
 package de.bender.dict.model;
 
-import io.quarkus.runtime.annotations.RegisterForReflection;
-
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import static java.util.Collections.emptyList;
 
-@RegisterForReflection
+/**
+ * The (immutable) result of a lookup - both sides are kept as plain arrays which are never copied again after
+ * construction, the getters just hand out read-only views on them. If the query was autocorrected, the translation
+ * knows the term that was actually typed - if there are no results, it may carry suggestions for similar terms.
+ */
 public class Translation {
 
+    private static final String[] NONE = new String[0];
+
     private final String query;
-    private List<String> source;
-    private List<String> destination;
+    private final String[] source;
+    private final String[] destination;
+    private final List<String> sourceView;
+    private final List<String> destinationView;
+    private final String correctedFrom;
+    private final List<String> suggestions;
 
     public Translation(String queryTerm) {
+        this(queryTerm, NONE, NONE);
+    }
+
+    public Translation(String queryTerm, List<String> source, List<String> destination) {
+        this(queryTerm, source.toArray(NONE), destination.toArray(NONE));
+    }
+
+    private Translation(String queryTerm, String[] source, String[] destination) {
+        this(queryTerm, source, destination, null, List.of());
+    }
+
+    private Translation(String queryTerm, String[] source, String[] destination, String correctedFrom, List<String> suggestions) {
         this.query = queryTerm;
-        this.source = emptyList();
-        this.destination = emptyList();
+        this.source = source;
+        this.destination = destination;
+        this.sourceView = Collections.unmodifiableList(Arrays.asList(source));
+        this.destinationView = Collections.unmodifiableList(Arrays.asList(destination));
+        this.correctedFrom = correctedFrom;
+        this.suggestions = suggestions;
+    }
+
+    /**
+     * @return the same translation with other pairs (i.e. ranked ones) - the correction and suggestions are kept
+     */
+    public Translation withPairs(List<String> source, List<String> destination) {
+        return new Translation(query, source.toArray(NONE), destination.toArray(NONE), correctedFrom, suggestions);
+    }
+
+    /**
+     * @return the same translation - marked as the one for the given (misspelled) term
+     */
+    public Translation withCorrectedFrom(String typedTerm) {
+        return new Translation(query, source, destination, typedTerm, suggestions);
+    }
+
+    /**
+     * @return the same translation - along with terms the user may have meant instead
+     */
+    public Translation withSuggestions(List<String> suggestions) {
+        return new Translation(query, source, destination, correctedFrom, List.copyOf(suggestions));
     }
 
     public String getQuery() {
@@ -23,27 +69,53 @@ public class Translation {
     }
 
     public List<String> getSource() {
-        return List.copyOf(source);
+        return sourceView;
     }
 
     public List<String> getDestination() {
-        return List.copyOf(destination);
+        return destinationView;
+    }
+
+    /**
+     * @return the term which was typed if it got autocorrected to {@link #getQuery()} - null otherwise
+     */
+    public String getCorrectedFrom() {
+        return correctedFrom;
+    }
+
+    public List<String> getSuggestions() {
+        return suggestions;
+    }
+
+    /**
+     * @return true if there's at least one complete pair of source and destination
+     */
+    public boolean hasResults() {
+        return pairCount() > 0;
+    }
+
+    /**
+     * @return the number of complete pairs (both sides are expected to be of the same size - if not, the surplus
+     * entries of the longer side are ignored)
+     */
+    public int pairCount() {
+        return Math.min(source.length, destination.length);
     }
 
-    public void setSource(List<String> source) {
-        this.source = List.copyOf(source);
+    public String source(int index) {
+        return source[index];
     }
 
-    public void setDestination(List<String> destination) {
-        this.destination = List.copyOf(destination);
+    public String destination(int index) {
+        return destination[index];
     }
 
     @Override
     public String toString() {
         return "Translation{" +
                 "query='" + query + '\'' +
-                ", source=" + source +
-                ", destination=" + destination +
+                ", source=" + sourceView +
+                ", destination=" + destinationView +
                 '}';
     }
 }
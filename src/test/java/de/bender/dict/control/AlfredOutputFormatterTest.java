@@ -0,0 +1,91 @@
+package de.bender.dict.control;
+
+import de.bender.dict.model.MultiTranslation;
+import de.bender.dict.model.Translation;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AlfredOutputFormatterTest {
+
+    private final AlfredOutputFormatter formatter = new AlfredOutputFormatter();
+
+    @Test
+    void writesOneItemPerPair() throws IOException {
+        var translation = new Translation("haus", List.of("Haus {n}", "Heim {n}"), List.of("house", "home"));
+
+        assertEquals("<?xml version=\"1.0\"?><items>"
+                + "<item valid=\"yes\" arg=\"house\"><title>house</title><subtitle>Haus {n}</subtitle></item>"
+                + "<item valid=\"yes\" arg=\"home\"><title>home</title><subtitle>Heim {n}</subtitle></item>"
+                + "</items>", write(translation));
+    }
+
+    @Test
+    void tellsTheTargetLanguagesApartInTheSubtitle() throws IOException {
+        var translations = new LinkedHashMap<String, Translation>();
+        translations.put("en", new Translation("haus", List.of("Haus {n}"), List.of("house")));
+        translations.put("fr", new Translation("haus", List.of("Haus {n}"), List.of("maison {f}")));
+        var out = new StringWriter();
+
+        formatter.write(new MultiTranslation("haus", "de", translations), out);
+
+        assertEquals("<?xml version=\"1.0\"?><items>"
+                + "<item valid=\"yes\" arg=\"house\"><title>house</title><subtitle>[en] Haus {n}</subtitle></item>"
+                + "<item valid=\"yes\" arg=\"maison {f}\"><title>maison {f}</title><subtitle>[fr] Haus {n}</subtitle></item>"
+                + "</items>", out.toString());
+    }
+
+    @Test
+    void anUnknownTermIsOneInvalidItem() throws IOException {
+        var translations = new LinkedHashMap<String, Translation>();
+        translations.put("en", new Translation("xyz"));
+        var out = new StringWriter();
+
+        formatter.write(new MultiTranslation("xyz", "de", translations), out);
+
+        assertEquals("<?xml version=\"1.0\"?><items><item valid=\"no\"><title>xyz not found</title></item></items>", out.toString());
+    }
+
+    @Test
+    void escapesEveryInterpolatedValue() throws IOException {
+        var translation = new Translation("sb./sth. & co", List.of("jdn. <etw.>"), List.of("\"sb.\" & 'sth.'"))
+                .withCorrectedFrom("sb./sth. & c<");
+
+        assertEquals("<?xml version=\"1.0\"?><items>"
+                + "<item valid=\"no\" autocomplete=\"sb./sth. &amp; co\"><title>Showing translations for sb./sth. &amp; co</title>"
+                + "<subtitle>sb./sth. &amp; c&lt; not found</subtitle></item>"
+                + "<item valid=\"yes\" arg=\"&quot;sb.&quot; &amp; &apos;sth.&apos;\"><title>&quot;sb.&quot; &amp; &apos;sth.&apos;</title>"
+                + "<subtitle>jdn. &lt;etw.&gt;</subtitle></item>"
+                + "</items>", write(translation));
+    }
+
+    @Test
+    void escapesSuggestions() throws IOException {
+        var translation = new Translation("a&b").withSuggestions(List.of("a & b", "\"ab\""));
+
+        assertEquals("<?xml version=\"1.0\"?><items>"
+                + "<item valid=\"no\"><title>a&amp;b not found</title></item>"
+                + "<item valid=\"no\" autocomplete=\"a &amp; b\"><title>Did you mean a &amp; b?</title></item>"
+                + "<item valid=\"no\" autocomplete=\"&quot;ab&quot;\"><title>Did you mean &quot;ab&quot;?</title></item>"
+                + "</items>", write(translation));
+    }
+
+    @Test
+    void dropsControlCharacters() throws IOException {
+        var out = new StringWriter();
+        AlfredOutputFormatter.escape("a\u0001b\tc", out);
+
+        assertEquals("ab\tc", out.toString());
+    }
+
+    private String write(Translation translation) throws IOException {
+        var out = new StringWriter();
+        formatter.write(translation, out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package de.bender.dict.control;
+
+import de.bender.dict.model.Translation;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The lookups are answered by a stand-in provider - after the given delay (in millis) per term
+ */
+class BatchTranslatorTest {
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private final List<String> results = new ArrayList<>();
+    private final List<String> failures = new ArrayList<>();
+
+    @Test
+    void handsOverTheResultsInInputOrder() {
+        var provider = delayed(Map.of("a", 150, "b", 0, "c", 75, "d", 0, "e", 30));
+
+        new BatchTranslator(3).translate(List.of("a", "b", "c", "d", "e").iterator(),
+                term -> Dict.translate(term).withProviders(List.of(provider)),
+                translation -> results.add(translation.getQuery()),
+                (term, cause) -> failures.add(term));
+
+        assertEquals(List.of("a", "b", "c", "d", "e"), results);
+        assertTrue(failures.isEmpty());
+        assertTrue(maxRunning.get() <= 3);
+    }
+
+    @Test
+    void aLookupWhichCantBeStartedFailsJustItsTerm() {
+        var provider = delayed(Map.of("a", 0, "c", 0));
+        var causes = new ArrayList<Throwable>();
+
+        new BatchTranslator(2).translate(List.of("a", "b", "c").iterator(),
+                term -> "b".equals(term)
+                        ? Dict.translate(term).withProxyHost("proxy")      // without a port
+                        : Dict.translate(term).withProviders(List.of(provider)),
+                translation -> results.add(translation.getQuery()),
+                (term, cause) -> {
+                    failures.add(term);
+                    causes.add(cause);
+                });
+
+        assertEquals(List.of("a", "c"), results);
+        assertEquals(List.of("b"), failures);
+        assertInstanceOf(IllegalStateException.class, causes.get(0));
+    }
+
+    @Test
+    void cachedTermsArentSlowedDownByTheRateLimit() {
+        var cache = TranslationCache.inMemory(100, Duration.ofDays(1));
+        var terms = new ArrayList<String>();
+        for (int i = 0; i < 50; i++) {
+            terms.add("term" + i);
+            cache.put("de", "en", new Translation("term" + i, List.of("Term"), List.of("term")));
+        }
+        var rateLimiter = new RateLimiter(1);
+
+        var start = System.nanoTime();
+        new BatchTranslator(4).translate(terms.iterator(),
+                term -> Dict.translate(term).withCache(cache).withRateLimiter(rateLimiter).withProviders(List.of(delayed(Map.of()))),
+                translation -> results.add(translation.getQuery()),
+                (term, cause) -> failures.add(term));
+
+        assertEquals(terms, results);
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(1).toNanos());
+    }
+
+    private TranslationProvider delayed(Map<String, Integer> delays) {
+        return new TranslationProvider() {
+            @Override
+            public String name() {
+                return "delayed";
+            }
+
+            @Override
+            public boolean canHandle(String from, String to) {
+                return true;
+            }
+
+            @Override
+            public CompletableFuture<Translation> translate(Dict lookup) {
+                if (!delays.containsKey(lookup.query())) {
+                    return CompletableFuture.failedFuture(new AssertionError("asked for " + lookup.query()));
+                }
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                return CompletableFuture.supplyAsync(() -> {
+                    running.decrementAndGet();
+                    return new Translation(lookup.query(), List.of(lookup.query()), List.of(lookup.query()));
+                }, CompletableFuture.delayedExecutor(delays.get(lookup.query()), MILLISECONDS));
+            }
+        };
+    }
+}
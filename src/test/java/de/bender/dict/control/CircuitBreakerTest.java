@@ -0,0 +1,88 @@
+package de.bender.dict.control;
+
+import de.bender.dict.control.CircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        var breaker = new CircuitBreaker(2, Duration.ofMinutes(1));
+        breaker.recordFailure();
+        breaker.recordSuccess();        // resets the count
+        breaker.recordFailure();
+        assertEquals(State.closed, breaker.state());
+        assertTrue(breaker.allowRequest());
+
+        breaker.recordFailure();
+        assertEquals(State.open, breaker.state());
+        assertFalse(breaker.allowRequest());
+        assertTrue(breaker.retryIn().compareTo(Duration.ofSeconds(50)) > 0);
+    }
+
+    @Test
+    void letsASingleTrialThroughOnceTheOpenDurationPassed() {
+        var breaker = opened(Duration.ZERO);
+
+        assertTrue(breaker.allowRequest());
+        assertEquals(State.halfOpen, breaker.state());
+        assertFalse(breaker.allowRequest());
+
+        breaker.recordSuccess();
+        assertEquals(State.closed, breaker.state());
+        assertTrue(breaker.allowRequest());
+        assertEquals(Duration.ZERO, breaker.retryIn());
+    }
+
+    @Test
+    void aFailedTrialOpensTheBreakerForAnotherRound() {
+        var breaker = opened(Duration.ofMillis(50));
+        sleep(60);
+        assertTrue(breaker.allowRequest());
+
+        breaker.recordFailure();
+        assertEquals(State.open, breaker.state());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    void aCancelledTrialLetsTheNextCallerTryRightAway() {
+        var breaker = opened(Duration.ofMillis(50));
+        sleep(60);
+        assertTrue(breaker.allowRequest());
+
+        breaker.recordCancelled();
+        assertEquals(State.open, breaker.state());
+        assertTrue(breaker.allowRequest());
+        assertEquals(State.halfOpen, breaker.state());
+    }
+
+    @Test
+    void cancellationsDontAffectAClosedBreaker() {
+        var breaker = new CircuitBreaker(1, Duration.ofMinutes(1));
+        breaker.recordCancelled();
+
+        assertEquals(State.closed, breaker.state());
+    }
+
+    private static CircuitBreaker opened(Duration openDuration) {
+        var breaker = new CircuitBreaker(1, openDuration);
+        breaker.recordFailure();
+        assertEquals(State.open, breaker.state());
+        return breaker;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package de.bender.dict.control;
+
+import com.sun.net.httpserver.HttpServer;
+import de.bender.dict.control.OutputFormatter.OutputFormat;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DictServerTest {
+
+    @Test
+    void forwardsTheLookupWithAllItsParameters() throws IOException {
+        var received = new ArrayList<String>();
+        DictServer.Handler handler = (session, query, from, to, format, limit, bidirectional, refresh) -> {
+            received.addAll(List.of(session, query, from, to, format.name(), String.valueOf(limit),
+                    String.valueOf(bidirectional), String.valueOf(refresh)));
+            return "Haus {n}\thouse";
+        };
+
+        try (var server = DictServer.start(0, handler, () -> "")) {
+            var output = DictServer.forward(server.port(), "alfred", "Fuß & mehr", "de", "fr", OutputFormat.alfred, 5, true, false);
+
+            assertEquals(Optional.of("Haus {n}\thouse"), output);
+            assertEquals(List.of("alfred", "Fuß & mehr", "de", "fr", "alfred", "5", "true", "false"), received);
+        }
+    }
+
+    @Test
+    void aRejectedLookupIsNotDoneAgainInProcess() throws IOException {
+        try (var server = DictServer.start(0, failingWith(new IllegalArgumentException("Unsupported language 'xx'")), () -> "")) {
+            var rejected = assertThrows(IOException.class, () -> forward(server.port()));
+
+            assertTrue(rejected.getMessage().contains("400"));
+            assertTrue(rejected.getMessage().contains("Unsupported language 'xx'"));
+        }
+    }
+
+    @Test
+    void aFailingServerLeavesTheLookupToTheCaller() throws IOException {
+        try (var server = DictServer.start(0, failingWith(new IOException("dict.cc is down")), () -> "")) {
+            assertEquals(Optional.empty(), forward(server.port()));
+        }
+    }
+
+    @Test
+    void anotherServerOnThePortIsIgnored() throws IOException {
+        var foreign = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        foreign.createContext("/", exchange -> {
+            try (exchange) {
+                var body = "<html>not a dict-server</html>".getBytes(UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+        });
+        foreign.start();
+        try {
+            assertEquals(Optional.empty(), forward(foreign.getAddress().getPort()));
+        } finally {
+            foreign.stop(0);
+        }
+    }
+
+    @Test
+    void withoutAServerTheLookupIsLeftToTheCaller() throws IOException {
+        int port;
+        try (var server = DictServer.start(0, failingWith(new IllegalStateException()), () -> "")) {
+            port = server.port();
+        }
+
+        assertEquals(Optional.empty(), forward(port));
+    }
+
+    private static DictServer.Handler failingWith(Exception failure) {
+        return (session, query, from, to, format, limit, bidirectional, refresh) -> {
+            throw failure;
+        };
+    }
+
+    private static Optional<String> forward(int port) throws IOException {
+        return DictServer.forward(port, null, "haus", "de", "en", OutputFormat.raw, ResultRanker.DEFAULT_LIMIT, false, false);
+    }
+}
@@ -0,0 +1,194 @@
+package de.bender.dict.control;
+
+import com.sun.net.httpserver.HttpServer;
+import de.bender.dict.control.LookupStats.Counter;
+import de.bender.dict.control.LookupStats.Phase;
+import de.bender.dict.model.Translation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The online lookups go to a local stand-in of dict.cc which answers with the given status-codes (and delays) in turn
+ */
+class DictTest {
+
+    private static final String PAGE = "var c1Arr = new Array(\"\",\"house\");\nvar c2Arr = new Array(\"\",\"Haus {n}\");";
+
+    private final LookupStats stats = new LookupStats();
+    private final Queue<int[]> answers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private HttpServer server;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            var answer = Objects.requireNonNullElse(answers.poll(), new int[]{ 200, 0 });
+            try {
+                Thread.sleep(answer[1]);
+                var body = answer[0] == 200 ? PAGE.getBytes(UTF_8) : new byte[0];
+                exchange.sendResponseHeaders(answer[0], body.length > 0 ? body.length : -1);
+                exchange.getResponseBody().write(body);
+            } catch (InterruptedException | IOException e) {
+                // the client gave up on it
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    void retriesServerErrors() throws Exception {
+        answer(503, 0);
+        answer(500, 0);
+
+        var translation = online().withRetries(2).build();
+
+        assertEquals(List.of("Haus {n}"), translation.getSource());
+        assertEquals(3, requests.get());
+        assertEquals(2, stats.count(Counter.retries));
+    }
+
+    @Test
+    void doesntRetryClientErrors() {
+        answer(404, 0);
+
+        var failure = assertThrows(IOException.class, () -> online().withRetries(2).build());
+
+        assertTrue(failure.getMessage().contains("404"), failure.getMessage());
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void fallsBackToAStaleTranslationOnceDictCcCantBeReached() throws Exception {
+        var cache = TranslationCache.inMemory(10, Duration.ofMillis(-1));        // everything's expired right away
+        cache.put("de", "en", new Translation("haus", List.of("Haus"), List.of("home")));
+        answer(500, 0);
+
+        var translation = online().withCache(cache).withRetries(0).build();
+
+        assertEquals(List.of("home"), translation.getDestination());
+        assertEquals(1, stats.count(Counter.staleHits));
+    }
+
+    @Test
+    void hedgesARequestWhichTakesLongerThanUsual() throws Exception {
+        answer(200, 5_000);
+
+        var start = System.nanoTime();
+        var translation = online().withRetries(0).withHedgeDelay(Duration.ofMillis(100)).build();
+
+        assertEquals(1, translation.pairCount());
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(3).toNanos());
+        assertEquals(1, stats.count(Counter.hedges));
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void anOpenCircuitBreakerFailsFast() {
+        var breaker = new CircuitBreaker(1, Duration.ofMinutes(1));
+        answer(500, 0);
+        assertThrows(IOException.class, () -> online().withRetries(0).withCircuitBreaker(breaker).build());
+
+        var failure = assertThrows(IOException.class, () -> online().withRetries(0).withCircuitBreaker(breaker).build());
+
+        assertTrue(failure.getMessage().contains("down"), failure.getMessage());
+        assertEquals(1, requests.get());
+        assertEquals(1, stats.count(Counter.shortCircuits));
+    }
+
+    @Test
+    void everyCoalescedLookupIsFinished() throws Exception {
+        var answer = new CompletableFuture<Translation>();
+        var asked = new AtomicInteger();
+        var provider = provider(lookup -> {
+            asked.incrementAndGet();
+            return answer;
+        });
+        var singleFlight = new SingleFlight();
+
+        var first = Dict.translate("haus").withStats(stats).withSingleFlight(singleFlight).withProviders(List.of(provider)).buildAsync();
+        var second = Dict.translate("haus").withStats(stats).withSingleFlight(singleFlight).withProviders(List.of(provider)).buildAsync();
+        answer.complete(new Translation("haus", List.of("Haus"), List.of("house")));
+
+        assertEquals(1, first.get(1, TimeUnit.SECONDS).pairCount());
+        assertEquals(1, second.get(1, TimeUnit.SECONDS).pairCount());
+        assertEquals(1, asked.get());
+        assertEquals(1, stats.count(Counter.coalesced));
+        assertEquals(2, stats.count(Phase.total));
+    }
+
+    @Test
+    void cancellingACoalescedLookupLeavesTheFlightToTheOthers() {
+        var answer = new CompletableFuture<Translation>();
+        var provider = provider(lookup -> answer);
+        var singleFlight = new SingleFlight();
+
+        var first = Dict.translate("haus").withSingleFlight(singleFlight).withProviders(List.of(provider)).buildAsync();
+        var second = Dict.translate("haus").withSingleFlight(singleFlight).withProviders(List.of(provider)).buildAsync();
+        second.cancel(true);
+        assertFalse(answer.isCancelled());
+
+        first.cancel(true);
+        assertTrue(answer.isCancelled());
+    }
+
+    private Dict.DictBuilder online() {
+        return Dict.translate("haus")
+                .withEndpoint("http://127.0.0.1:" + server.getAddress().getPort() + "/%s?s=%s")
+                .withRequestTimeout(Duration.ofSeconds(10))
+                .withStats(stats);
+    }
+
+    private void answer(int status, int delayMillis) {
+        answers.add(new int[]{ status, delayMillis });
+    }
+
+    static TranslationProvider provider(Function<Dict, CompletableFuture<Translation>> translate) {
+        return new TranslationProvider() {
+            @Override
+            public String name() {
+                return "stub";
+            }
+
+            @Override
+            public boolean canHandle(String from, String to) {
+                return true;
+            }
+
+            @Override
+            public CompletableFuture<Translation> translate(Dict lookup) {
+                return translate.apply(lookup);
+            }
+        };
+    }
+}
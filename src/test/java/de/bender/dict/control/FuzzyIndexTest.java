@@ -0,0 +1,95 @@
+package de.bender.dict.control;
+
+import de.bender.dict.control.FuzzyIndex.Suggestion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FuzzyIndexTest {
+
+    private static final List<String> TERMS = List.of("haus", "maus", "hausaufgabe", "house", "baum", "straße");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void suggestsTheClosestTermsFirst() throws IOException {
+        var index = write(TERMS);
+
+        assertEquals(List.of(new Suggestion("haus", 1), new Suggestion("maus", 2)), index.suggest("hauss", 2, 10));
+        assertEquals(List.of(new Suggestion("haus", 1)), index.suggest("hauss", 1, 10));
+        assertEquals(List.of(new Suggestion("haus", 1)), index.suggest("Hauss", 2, 1));
+    }
+
+    @Test
+    void theTermItselfIsNoSuggestion() throws IOException {
+        var index = write(TERMS);
+
+        var suggestions = index.suggest("haus", 2, 10);
+        assertEquals(new Suggestion("maus", 1), suggestions.get(0));
+        assertTrue(suggestions.stream().noneMatch(s -> s.term().equals("haus")));
+    }
+
+    @Test
+    void findsTyposBeyondThePrefix() throws IOException {
+        var index = write(TERMS);
+
+        assertEquals(List.of(new Suggestion("hausaufgabe", 1)), index.suggest("hausaufgbe", 2, 10));
+        assertEquals(List.of(new Suggestion("straße", 1)), index.suggest("strase", 2, 10));
+    }
+
+    @Test
+    void addedTermsAreSuggestedToo() throws IOException {
+        var index = write(TERMS);
+        index.add("Hütte");
+        index.add("haus");      // known already
+
+        assertEquals(TERMS.size() + 1, index.size());
+        assertEquals(List.of(new Suggestion("hütte", 1)), index.suggest("hüte", 2, 10));
+    }
+
+    @Test
+    void aMissingOrForeignFileIsAnEmptyIndex() throws IOException {
+        assertEquals(0, FuzzyIndex.open(directory.resolve("missing.fuzzy")).size());
+
+        var foreign = directory.resolve("foreign.fuzzy");
+        Files.writeString(foreign, "no index at all");
+        assertEquals(0, FuzzyIndex.open(foreign).size());
+        assertTrue(FuzzyIndex.open(foreign).suggest("haus", 2, 10).isEmpty());
+    }
+
+    @Test
+    void importingAnOfflineDictionaryWritesTheIndexAlongside() throws IOException {
+        var vocabulary = directory.resolve("vocabulary.txt");
+        Files.write(vocabulary, List.of("Haus {n}\thouse", "Maus {f}\tmouse"), UTF_8);
+        OfflineDictionary.importVocabulary(vocabulary, directory, "de", "en");
+
+        var index = OfflineDictionary.fuzzyIndex(directory, "en", "de");
+        assertEquals(4, index.size());
+        assertEquals(List.of(new Suggestion("haus", 1), new Suggestion("house", 1)), index.suggest("hause", 2, 2));
+    }
+
+    @Test
+    void distanceIsTheLevenshteinDistance() {
+        assertEquals(0, FuzzyIndex.distance("haus", "haus"));
+        assertEquals(1, FuzzyIndex.distance("haus", "hau"));
+        assertEquals(1, FuzzyIndex.distance("haus", "maus"));
+        assertEquals(3, FuzzyIndex.distance("kitten", "sitting"));
+    }
+
+    private FuzzyIndex write(List<String> terms) throws IOException {
+        var location = directory.resolve("terms.fuzzy");
+        FuzzyIndex.write(terms, location);
+        var index = FuzzyIndex.open(location);
+        assertEquals(terms.size(), index.size());
+        return index;
+    }
+}
@@ -0,0 +1,55 @@
+package de.bender.dict.control;
+
+import de.bender.dict.model.MultiTranslation;
+import de.bender.dict.model.Translation;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonOutputFormatterTest {
+
+    private final JsonOutputFormatter formatter = new JsonOutputFormatter();
+
+    @Test
+    void writesThePropertiesInJsonBOrder() {
+        var translation = new Translation("haus", List.of("Haus {n}", "Heim {n}"), List.of("house", "home"));
+
+        assertEquals("{\"destination\":[\"house\",\"home\"],\"query\":\"haus\",\"source\":[\"Haus {n}\",\"Heim {n}\"]}",
+                formatter.format(translation));
+    }
+
+    @Test
+    void addsTheCorrectionAndTheSuggestionsOnlyIfThereAreAny() {
+        var translation = new Translation("haus").withCorrectedFrom("hous").withSuggestions(List.of("haus"));
+
+        assertEquals("{\"correctedFrom\":\"hous\",\"destination\":[],\"query\":\"haus\",\"source\":[],\"suggestions\":[\"haus\"]}",
+                formatter.format(translation));
+    }
+
+    @Test
+    void escapesQuotesBackslashesAndControlCharacters() {
+        var translation = new Translation("say \"hi\"", List.of("a\\b\tc"), List.of("line\nbreak\u0001"));
+
+        assertEquals("{\"destination\":[\"line\\nbreak\\u0001\"],\"query\":\"say \\\"hi\\\"\",\"source\":[\"a\\\\b\\tc\"]}",
+                formatter.format(translation));
+    }
+
+    @Test
+    void nestsTheTranslationsPerTargetLanguage() throws IOException {
+        var translations = new LinkedHashMap<String, Translation>();
+        translations.put("en", new Translation("haus", List.of("Haus {n}"), List.of("house")));
+        translations.put("fr", new Translation("haus", List.of("Haus {n}"), List.of("maison {f}")));
+        var out = new StringWriter();
+
+        formatter.write(new MultiTranslation("haus", "de", translations), out);
+
+        assertEquals("{\"from\":\"de\",\"query\":\"haus\",\"translations\":{"
+                + "\"en\":{\"destination\":[\"house\"],\"query\":\"haus\",\"source\":[\"Haus {n}\"]},"
+                + "\"fr\":{\"destination\":[\"maison {f}\"],\"query\":\"haus\",\"source\":[\"Haus {n}\"]}}}", out.toString());
+    }
+}
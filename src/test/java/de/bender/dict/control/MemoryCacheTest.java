@@ -0,0 +1,108 @@
+package de.bender.dict.control;
+
+import de.bender.dict.model.Translation;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A translation without pairs weighs 234 bytes (with a two-character query) - so 720 bytes hold three of them
+ */
+class MemoryCacheTest {
+
+    private static final Duration TTL = Duration.ofHours(1);
+    private static final Supplier<CompletableFuture<Translation>> NO_REVALIDATION = () -> {
+        throw new AssertionError("revalidated");
+    };
+
+    private final MemoryCache cache = new MemoryCache(720, TTL, TTL);
+
+    @Test
+    void newcomersReplaceTranslationsAskedForJustOnce() {
+        fill("t1", "t2", "t3");
+        cache.put("de", "en", new Translation("t4"));
+
+        assertEquals(3, cache.size());
+        assertTrue(cache.get("de", "en", "t4", NO_REVALIDATION).isPresent());
+        assertTrue(cache.bytes() <= 720);
+    }
+
+    @Test
+    void popularTranslationsAreOnlyReplacedByMorePopularOnes() {
+        fill("t1", "t2", "t3");
+        ask(3, "t1", "t2", "t3");
+
+        cache.put("de", "en", new Translation("t4"));
+        assertTrue(cache.get("de", "en", "t4", NO_REVALIDATION).isEmpty());
+
+        ask(5, "t4");
+        cache.put("de", "en", new Translation("t4"));
+        assertTrue(cache.get("de", "en", "t4", NO_REVALIDATION).isPresent());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void replacingATranslationKeepsTheSizeAccurate() {
+        cache.put("de", "en", new Translation("t1"));
+        var bytes = cache.bytes();
+        cache.put("de", "en", new Translation("t1"));
+
+        assertEquals(1, cache.size());
+        assertEquals(bytes, cache.bytes());
+    }
+
+    @Test
+    void rejectsTranslationsLargerThanTheCache() {
+        cache.put("de", "en", new Translation("huge", List.of("x".repeat(1000)), List.of("y")));
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void staleTranslationsAreServedWhileOneCallerRefreshesThem() {
+        cache.put("de", "en", new Translation("t1"), System.currentTimeMillis() - TTL.toMillis() - 1000);
+        var revalidations = new AtomicInteger();
+        var refresh = new CompletableFuture<Translation>();
+        Supplier<CompletableFuture<Translation>> revalidate = () -> {
+            revalidations.incrementAndGet();
+            return refresh;
+        };
+
+        assertTrue(cache.get("de", "en", "t1", revalidate).isPresent());
+        assertTrue(cache.get("de", "en", "t1", revalidate).isPresent());
+        assertEquals(1, revalidations.get());
+
+        refresh.complete(new Translation("t1"));
+        cache.get("de", "en", "t1", revalidate);
+        assertEquals(2, revalidations.get());
+    }
+
+    @Test
+    void translationsTakenOverFromDiskKeepTheirAge() {
+        cache.put("de", "en", new Translation("t1"), System.currentTimeMillis() - 2 * TTL.toMillis() - 1000);
+
+        assertTrue(cache.get("de", "en", "t1", NO_REVALIDATION).isEmpty());
+    }
+
+    private void fill(String... queries) {
+        for (String query : queries) {
+            cache.put("de", "en", new Translation(query));
+        }
+        assertEquals(queries.length, cache.size());
+    }
+
+    private void ask(int times, String... queries) {
+        for (int i = 0; i < times; i++) {
+            for (String query : queries) {
+                cache.get("de", "en", query, () -> CompletableFuture.completedFuture(null));
+            }
+        }
+    }
+}
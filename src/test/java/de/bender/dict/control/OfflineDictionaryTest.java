@@ -0,0 +1,88 @@
+package de.bender.dict.control;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OfflineDictionaryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void looksUpBothColumns() throws IOException {
+        var dictionary = importVocabulary();
+
+        var german = dictionary.lookup("Haus", "de", 10);
+        assertEquals(List.of("Haus {n}", "Haus {n}"), german.getSource());
+        assertEquals(List.of("house", "home"), german.getDestination());
+
+        var english = dictionary.lookup("HOME", "en", 10);
+        assertEquals(List.of("home"), english.getSource());
+        assertEquals(List.of("Haus {n}"), english.getDestination());
+    }
+
+    @Test
+    void fallsBackToPrefixesIfNothingMatchesExactly() throws IOException {
+        var dictionary = importVocabulary();
+
+        assertEquals(List.of("Hausaufgabe {f}", "Hausaufgaben machen"), dictionary.lookup("hausauf", "de", 10).getSource());
+        assertEquals(1, dictionary.lookup("hausauf", "de", 1).pairCount());
+        assertFalse(dictionary.lookup("zebra", "de", 10).hasResults());
+    }
+
+    @Test
+    void sortsKeysByTheirUtf8Bytes() throws IOException {
+        var dictionary = importVocabulary();
+
+        assertEquals(List.of("Fuß {m}"), dictionary.lookup("fuß", "de", 10).getSource());
+        assertEquals(List.of("Öl {n}"), dictionary.lookup("öl", "de", 10).getSource());
+    }
+
+    @Test
+    void unknownLanguagePairsHaveNoDictionary() throws IOException {
+        importVocabulary();
+
+        assertTrue(OfflineDictionary.forLanguages(offline(), "de", "fr").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> OfflineDictionary.importVocabulary(directory.resolve("x"), directory, "deu", "en"));
+    }
+
+    @Test
+    void normalizeDropsAnnotationsAndWhitespace() {
+        assertEquals("haus", OfflineDictionary.normalize("Haus {n}"));
+        assertEquals("to go home", OfflineDictionary.normalize(" to  go\thome [coll.] <go> "));
+        assertEquals("a {b", OfflineDictionary.normalize("A {b"));
+        assertEquals("", OfflineDictionary.normalize("{n} [Br.]"));
+    }
+
+    private OfflineDictionary importVocabulary() throws IOException {
+        var vocabulary = directory.resolve("vocabulary.txt");
+        Files.write(vocabulary, List.of(
+                "# dict.cc export",
+                "Haus {n}\thouse\tnoun",
+                "Haus {n}\thome",
+                "Hausaufgabe {f}\thomework",
+                "Hausaufgaben machen\tto do homework",
+                "Fuß {m}\tfoot",
+                "Öl {n}\toil",
+                "",
+                "broken line"), UTF_8);
+
+        assertEquals(6, OfflineDictionary.importVocabulary(vocabulary, offline(), "de", "en"));
+        return OfflineDictionary.forLanguages(offline(), "en", "de").orElseThrow();
+    }
+
+    private Path offline() {
+        return directory.resolve("offline");
+    }
+}
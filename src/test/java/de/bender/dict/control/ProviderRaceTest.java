@@ -0,0 +1,107 @@
+package de.bender.dict.control;
+
+import de.bender.dict.model.Translation;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The providers are local stand-ins - futures completed by the test (or right away)
+ */
+class ProviderRaceTest {
+
+    private static final Duration BUDGET = Duration.ofSeconds(5);
+
+    @Test
+    void firstNonEmptyTranslationWinsAndTheOthersGetCancelled() throws Exception {
+        var slow = new CompletableFuture<Translation>();
+        var race = ProviderRace.race("haus", List.of(() -> slow, answering(pairs("Haus {n}", "house"))), null);
+
+        assertEquals(List.of("house"), race.get(1, TimeUnit.SECONDS).getDestination());
+        assertTrue(slow.isCancelled());
+    }
+
+    @Test
+    void anEmptyTranslationDoesNotWinAgainstAPendingOne() throws Exception {
+        var slow = new CompletableFuture<Translation>();
+        var race = ProviderRace.race("haus", List.of(answering(new Translation("haus")), () -> slow), null);
+        assertFalse(race.isDone());
+
+        slow.complete(pairs("Haus {n}", "house"));
+        assertEquals(1, race.get(1, TimeUnit.SECONDS).pairCount());
+    }
+
+    @Test
+    void mergesAnswersWithOppositeColumnOrderWithoutDuplicates() throws Exception {
+        var offline = pairs("Haus {n}", "house", "Hausaufgabe {f}", "homework");
+        var dictCc = new Translation("haus", List.of("house", "home"), List.of("Haus {n}", "Haus {n}"));
+
+        var merged = ProviderRace.race("haus", List.of(answering(offline), answering(dictCc)), BUDGET).get(1, TimeUnit.SECONDS);
+
+        assertEquals(List.of("Haus {n}", "Hausaufgabe {f}", "Haus {n}"), merged.getSource());
+        assertEquals(List.of("house", "homework", "home"), merged.getDestination());
+    }
+
+    @Test
+    void duplicatesAreToldApartByTheirNormalizedEntries() throws Exception {
+        var first = pairs("Haus {n}", "house");
+        var second = pairs("haus", "House [Br.]");
+
+        var merged = ProviderRace.race("haus", List.of(answering(first), answering(second)), BUDGET).get(1, TimeUnit.SECONDS);
+
+        assertEquals(1, merged.pairCount());
+        assertEquals("Haus {n}", merged.source(0));
+    }
+
+    @Test
+    void failsOnlyIfAllProvidersFailed() throws Exception {
+        var failed = CompletableFuture.<Translation>failedFuture(new IOException("down"));
+        var race = ProviderRace.race("haus", List.of(() -> failed, answering(pairs("Haus {n}", "house"))), BUDGET);
+        assertEquals(1, race.get(1, TimeUnit.SECONDS).pairCount());
+
+        var allFailed = ProviderRace.race("haus", List.<Supplier<CompletableFuture<Translation>>>of(() -> failed, () -> {
+            throw new IllegalStateException("broken");
+        }), null);
+        var failure = assertThrows(ExecutionException.class, () -> allFailed.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, failure.getCause());
+    }
+
+    @Test
+    void cancellingTheRaceCancelsAllLookups() {
+        var first = new CompletableFuture<Translation>();
+        var second = new CompletableFuture<Translation>();
+        var race = ProviderRace.race("haus", List.of(() -> first, () -> second), BUDGET);
+
+        race.cancel(true);
+
+        assertTrue(first.isCancelled());
+        assertTrue(second.isCancelled());
+    }
+
+    private static Supplier<CompletableFuture<Translation>> answering(Translation translation) {
+        return () -> CompletableFuture.completedFuture(translation);
+    }
+
+    private static Translation pairs(String... entries) {
+        var source = new ArrayList<String>();
+        var destination = new ArrayList<String>();
+        for (int i = 0; i < entries.length; i += 2) {
+            source.add(entries[i]);
+            destination.add(entries[i + 1]);
+        }
+        return new Translation("haus", source, destination);
+    }
+}
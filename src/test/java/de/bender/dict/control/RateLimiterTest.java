@@ -0,0 +1,41 @@
+package de.bender.dict.control;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    private static final long INTERVAL = Duration.ofMillis(100).toNanos();
+
+    @Test
+    void handsOutPermitsAtAFixedPace() {
+        var rateLimiter = new RateLimiter(10);
+
+        assertEquals(0, rateLimiter.reserve("www.dict.cc"));
+        var second = rateLimiter.reserve("www.dict.cc");
+        var third = rateLimiter.reserve("www.dict.cc");
+
+        assertTrue(second > INTERVAL / 2 && second <= INTERVAL, "second permit after " + second);
+        assertTrue(third > INTERVAL * 3 / 2 && third <= 2 * INTERVAL, "third permit after " + third);
+    }
+
+    @Test
+    void everyHostHasItsOwnPace() {
+        var rateLimiter = new RateLimiter(10);
+        rateLimiter.reserve("deen.dict.cc");
+
+        assertEquals(0, rateLimiter.reserve("defr.dict.cc"));
+        assertTrue(rateLimiter.reserve("deen.dict.cc") > 0);
+    }
+
+    @Test
+    void zeroMeansUnlimited() {
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, RateLimiter.UNLIMITED.reserve("www.dict.cc"));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package de.bender.dict.control;
+
+import de.bender.dict.model.Translation;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultParserTest {
+
+    @Test
+    void readsBothColumnsInPageOrder() throws IOException {
+        var translation = parse("""
+                <script>
+                var c1Arr = new Array("","house","home");
+                var c2Arr = new Array("","Haus {n}","Heim {n}");
+                </script>
+                """);
+
+        assertEquals("haus", translation.getQuery());
+        assertEquals(List.of("Haus {n}", "Heim {n}"), translation.getSource());
+        assertEquals(List.of("house", "home"), translation.getDestination());
+    }
+
+    @Test
+    void unescapesQuotesAndKeepsUtf8() throws IOException {
+        var translation = parse("""
+                var c2Arr = new Array("Fuß","sein \\"Ding\\"",'Öl');
+                var c1Arr = new Array("foot","one's \\"thing\\"",'oil');
+                """);
+
+        assertEquals(List.of("Fuß", "sein \"Ding\"", "Öl"), translation.getSource());
+        assertEquals(List.of("foot", "one's \"thing\"", "oil"), translation.getDestination());
+    }
+
+    @Test
+    void decodesJsEscapes() throws IOException {
+        var translation = parse("""
+                var c1Arr = new Array("a\\tb\\nc","Stra\\u00dfe","\\x41\\\\\\/","\\ud83d\\ude00 \\u20ac","\\ud83d!");
+                var c2Arr = new Array("x");
+                """);
+
+        assertEquals(List.of("a\tb\nc", "Straße", "A\\/", "\ud83d\ude00 €", "\ufffd!"), translation.getDestination());
+    }
+
+    @Test
+    void ignoresLookalikesAndOtherArrays() throws IOException {
+        var translation = parse("""
+                var cc = 1; var c3Arr = new Array("no"); var c2 = "c1";
+                var c1Arr = new Array("house");
+                var c2Arr = new Array("Haus");
+                var c1Arr = new Array("ignored - we're done already");
+                """);
+
+        assertEquals(List.of("Haus"), translation.getSource());
+        assertEquals(List.of("house"), translation.getDestination());
+    }
+
+    @Test
+    void aPageWithoutResultsIsAnEmptyTranslation() throws IOException {
+        var translation = parse("<html><body>No entries found!</body></html>");
+
+        assertFalse(translation.hasResults());
+        assertTrue(translation.getSource().isEmpty());
+        assertTrue(translation.getDestination().isEmpty());
+    }
+
+    @Test
+    void markersAndTokensMaySpanBufferBoundaries() throws IOException {
+        var longEntry = "x".repeat(10_000);
+        var page = " ".repeat(8190) + "var c1Arr = new Array(\"" + longEntry + "\");\nvar c2Arr = new Array(\"Haus\");";
+
+        var translation = parse(page);
+
+        assertEquals(List.of(longEntry), translation.getDestination());
+        assertEquals(List.of("Haus"), translation.getSource());
+    }
+
+    private static Translation parse(String page) throws IOException {
+        return ResultParser.parse("haus", new ByteArrayInputStream(page.getBytes(UTF_8)));
+    }
+}
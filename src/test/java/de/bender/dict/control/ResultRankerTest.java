@@ -0,0 +1,86 @@
+package de.bender.dict.control;
+
+import de.bender.dict.model.Translation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultRankerTest {
+
+    @Test
+    void exactMatchesComeBeforeWordAndPrefixMatches() {
+        var ranked = new ResultRanker(0, ResultRanker.Usage.NONE)
+                .rank(pairs("haus", "Hausaufgabe {f}", "homework", "das Haus", "the house", "Haus {n}", "house"));
+
+        assertEquals(List.of("Haus {n}", "das Haus", "Hausaufgabe {f}"), ranked.getSource());
+        assertEquals(List.of("house", "the house", "homework"), ranked.getDestination());
+    }
+
+    @Test
+    void keepsOnlyTheBestPairs() {
+        var translation = pairs("haus", "Hausaufgabe {f}", "homework", "das Haus", "the house", "Haus {n}", "house");
+
+        var ranked = new ResultRanker(2, ResultRanker.Usage.NONE).rank(translation);
+
+        assertEquals(List.of("Haus {n}", "das Haus"), ranked.getSource());
+        assertEquals(List.of("house"), new ResultRanker(5, ResultRanker.Usage.NONE).withLimit(1).rank(translation).getDestination());
+    }
+
+    @Test
+    void entriesLookedUpLocallyRankHigher() {
+        var translation = pairs("haus", "das Haus", "the house", "ein Haus", "a house");
+
+        assertEquals(List.of("a house", "the house"), new ResultRanker(0, ResultRanker.Usage.NONE).rank(translation).getDestination());
+        assertEquals(List.of("the house", "a house"), new ResultRanker(0, terms -> Map.of("the house", 3)).rank(translation).getDestination());
+    }
+
+    @Test
+    void tiesKeepThePageOrder() {
+        var ranked = new ResultRanker(0, ResultRanker.Usage.NONE).rank(pairs("haus", "Haus", "casa", "Haus", "home"));
+
+        assertEquals(List.of("casa", "home"), ranked.getDestination());
+    }
+
+    @Test
+    void theSideMatchingTheQueryBecomesSource() {
+        var ranked = new ResultRanker(0, ResultRanker.Usage.NONE).rank(pairs("house", "Haus {n}", "house", "Heim {n}", "home"));
+
+        assertEquals(List.of("house", "home"), ranked.getSource());
+        assertEquals(List.of("Haus {n}", "Heim {n}"), ranked.getDestination());
+    }
+
+    @Test
+    void bidirectionalOrientsEveryPairOnItsOwn() {
+        var translation = pairs("gift", "Gift {n}", "poison", "Geschenk {n}", "gift");
+
+        var asAWhole = new ResultRanker(0, ResultRanker.Usage.NONE).rank(translation);
+        var perPair = new ResultRanker(0, ResultRanker.Usage.NONE).withBidirectional(true).rank(translation);
+
+        assertEquals(List.of("Gift {n}", "Geschenk {n}"), asAWhole.getSource());
+        assertEquals(List.of("Gift {n}", "gift"), perPair.getSource());
+        assertEquals(List.of("poison", "Geschenk {n}"), perPair.getDestination());
+    }
+
+    @Test
+    void reversedIfMorePairsMatchedOnTheirDestination() {
+        assertTrue(ResultRanker.reversed("house", new String[]{"haus", "house", "heim", "home", "das haus", "the house"}));
+        assertFalse(ResultRanker.reversed("haus", new String[]{"haus", "house", "heim", "home", "das haus", "the house"}));
+        assertFalse(ResultRanker.reversed("gift", new String[]{"gift", "poison", "geschenk", "gift"}));
+    }
+
+    private static Translation pairs(String query, String... entries) {
+        var source = new ArrayList<String>();
+        var destination = new ArrayList<String>();
+        for (int i = 0; i < entries.length; i += 2) {
+            source.add(entries[i]);
+            destination.add(entries[i + 1]);
+        }
+        return new Translation(query, source, destination);
+    }
+}
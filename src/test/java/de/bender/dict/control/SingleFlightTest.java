@@ -0,0 +1,88 @@
+package de.bender.dict.control;
+
+import de.bender.dict.control.LookupStats.Counter;
+import de.bender.dict.model.Translation;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private final SingleFlight flights = new SingleFlight();
+    private final LookupStats stats = new LookupStats();
+    private final AtomicInteger started = new AtomicInteger();
+
+    @Test
+    void concurrentCallersShareOneLookup() throws Exception {
+        var lookup = new CompletableFuture<Translation>();
+        var first = flights.execute("de|en|haus", stats, counting(lookup));
+        var second = flights.execute("de|en|haus", stats, counting(lookup));
+        var other = flights.execute("de|en|baum", stats, counting(new CompletableFuture<>()));
+
+        assertEquals(2, started.get());
+        assertEquals(1, stats.count(Counter.coalesced));
+
+        var translation = new Translation("haus");
+        lookup.complete(translation);
+        assertSame(translation, first.get(1, TimeUnit.SECONDS));
+        assertSame(translation, second.get(1, TimeUnit.SECONDS));
+        assertFalse(other.isDone());
+        assertEquals(1, flights.size());
+    }
+
+    @Test
+    void aLandedLookupIsNotJoinedAnymore() {
+        flights.execute("de|en|haus", stats, counting(CompletableFuture.completedFuture(new Translation("haus"))));
+        flights.execute("de|en|haus", stats, counting(CompletableFuture.completedFuture(new Translation("haus"))));
+
+        assertEquals(2, started.get());
+        assertEquals(0, flights.size());
+    }
+
+    @Test
+    void theLookupIsOnlyCancelledOnceAllCallersGaveUp() throws Exception {
+        var lookup = new CompletableFuture<Translation>();
+        var first = flights.execute("de|en|haus", stats, counting(lookup));
+        var second = flights.execute("de|en|haus", stats, counting(lookup));
+
+        first.cancel(true);
+        assertFalse(lookup.isCancelled());
+
+        second.cancel(true);
+        assertTrue(lookup.isCancelled());
+        assertEquals(0, flights.size());
+
+        var retry = flights.execute("de|en|haus", stats, counting(CompletableFuture.completedFuture(new Translation("haus"))));
+        assertEquals("haus", retry.get(1, TimeUnit.SECONDS).getQuery());
+        assertEquals(2, started.get());
+    }
+
+    @Test
+    void failuresReachAllCallers() {
+        var failing = flights.execute("de|en|haus", stats, () -> {
+            throw new IllegalStateException("broken");
+        });
+
+        var failure = assertThrows(ExecutionException.class, () -> failing.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        assertEquals(0, flights.size());
+    }
+
+    private Supplier<CompletableFuture<Translation>> counting(CompletableFuture<Translation> lookup) {
+        return () -> {
+            started.incrementAndGet();
+            return lookup;
+        };
+    }
+}
@@ -0,0 +1,53 @@
+package de.bender.dict.control;
+
+import de.bender.dict.model.MultiTranslation;
+import de.bender.dict.model.Translation;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StandardOutputFormatterTest {
+
+    private static final String SEPARATOR = "=".repeat(100) + "\n";
+
+    private final StandardOutputFormatter formatter = new StandardOutputFormatter();
+
+    @Test
+    void alignsTheSourceInTheSecondColumn() {
+        var longEntry = "x".repeat(60);
+        var translation = new Translation("haus", List.of("Haus {n}", "Haus"), List.of("house", longEntry));
+
+        assertEquals("Term: haus\n" + SEPARATOR
+                + "house" + " ".repeat(45) + "Haus {n}\n"
+                + longEntry + " Haus\n", formatter.format(translation));
+    }
+
+    @Test
+    void showsTheCorrectionAndTheSuggestions() {
+        var translation = new Translation("haus").withCorrectedFrom("hous").withSuggestions(List.of("haus", "hose"));
+
+        assertEquals("Term: haus (no translation for 'hous')\n" + SEPARATOR
+                + "Not Found\nDid you mean: haus, hose?", formatter.format(translation));
+    }
+
+    @Test
+    void writesOneSectionPerTargetLanguage() throws IOException {
+        var translations = new LinkedHashMap<String, Translation>();
+        translations.put("en", new Translation("haus", List.of("Haus {n}"), List.of("house")));
+        translations.put("fr", new Translation("haus"));
+        var out = new StringWriter();
+
+        formatter.write(new MultiTranslation("haus", "de", translations), out);
+
+        assertEquals("Term: haus\n" + SEPARATOR
+                + "de -> en\n" + "-".repeat(100) + "\n"
+                + "house" + " ".repeat(45) + "Haus {n}\n"
+                + "\nde -> fr\n" + "-".repeat(100) + "\n"
+                + "Not Found", out.toString());
+    }
+}
@@ -0,0 +1,134 @@
+package de.bender.dict.control;
+
+import de.bender.dict.model.Translation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranslationCacheTest {
+
+    private static final Duration TTL = Duration.ofDays(7);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void translationsSurviveARoundTrip() throws IOException {
+        var location = directory.resolve("cache.bin");
+        var cache = TranslationCache.open(location, 10, TTL);
+        cache.put("de", "en", haus());
+        cache.put("de", "en", new Translation("xyz"));
+        cache.save();
+
+        var reopened = TranslationCache.open(location, 10, TTL);
+
+        assertEquals(2, reopened.size());
+        var translation = reopened.get("en", "de", "  HAUS ").orElseThrow();       // both directions share an entry
+        assertEquals(haus().getSource(), translation.getSource());
+        assertEquals(haus().getDestination(), translation.getDestination());
+        assertFalse(reopened.get("de", "en", "xyz").orElseThrow().hasResults());
+    }
+
+    @Test
+    void readsFilesWithoutTheLengthOfTheTranslations() throws IOException {
+        var location = directory.resolve("cache.bin");
+        var storedAt = System.currentTimeMillis() - Duration.ofHours(1).toMillis();
+        try (var out = new DataOutputStream(Files.newOutputStream(location))) {
+            out.writeInt(0x44494354);
+            out.writeInt(2);
+            out.writeInt(2);
+            for (var query : List.of("haus", "baum")) {
+                writeString(out, "de|en|" + query);
+                out.writeLong(storedAt);
+                out.writeInt(3);
+                writeString(out, query);
+                out.writeInt(1);
+                writeString(out, query + " {n}");
+                out.writeInt(1);
+                writeString(out, "translation of " + query);
+            }
+        }
+
+        var cache = TranslationCache.open(location, 10, TTL);
+
+        assertEquals(2, cache.size());
+        assertEquals(List.of("translation of baum"), cache.get("de", "en", "baum").orElseThrow().getDestination());
+        assertEquals(storedAt, cache.storedAt("de", "en", "haus").getAsLong());
+        assertEquals(Map.of("haus", 3, "baum", 4), cache.usage(List.of("haus", "baum")));
+    }
+
+    @Test
+    void aCorruptFileIsAnEmptyCache() throws IOException {
+        var location = directory.resolve("cache.bin");
+        Files.write(location, new byte[]{ 0x44, 0x49, 0x43, 0x54, 0, 0, 0, 3, 0, 0, 0, 5, 0, 0 });
+
+        assertEquals(0, TranslationCache.open(location, 10, TTL).size());
+    }
+
+    @Test
+    void hitsGoToTheUsageLogUntilTheNextFullWrite() throws IOException {
+        var location = directory.resolve("cache.bin");
+        var usageLog = directory.resolve("cache.bin.usage");
+        var cache = TranslationCache.open(location, 10, TTL);
+        cache.put("de", "en", haus());
+        cache.save();
+        var written = Files.getLastModifiedTime(location);
+
+        cache.get("de", "en", "haus");
+        cache.touch("de", "en", "haus");        // a hit of the memory cache
+        cache.save();
+
+        assertEquals(List.of("de|en|haus", "de|en|haus"), Files.readAllLines(usageLog, UTF_8));
+        assertEquals(written, Files.getLastModifiedTime(location));
+        assertEquals(Map.of("haus", 3), TranslationCache.open(location, 10, TTL).usage(List.of("haus")));
+
+        cache.put("de", "en", new Translation("baum"));
+        cache.save();
+
+        assertFalse(Files.exists(usageLog));
+        assertEquals(Map.of("haus", 3), TranslationCache.open(location, 10, TTL).usage(List.of("haus")));
+    }
+
+    @Test
+    void expiredTranslationsAreOnlyServedAsFallback() {
+        var cache = TranslationCache.inMemory(10, Duration.ZERO.minusMillis(1));
+        cache.put("de", "en", haus());
+
+        assertTrue(cache.get("de", "en", "haus").isEmpty());
+        assertTrue(cache.getStale("de", "en", "haus").isPresent());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedTranslation() {
+        var cache = TranslationCache.inMemory(2, TTL);
+        cache.put("de", "en", new Translation("haus"));
+        cache.put("de", "en", new Translation("baum"));
+        cache.get("de", "en", "haus");
+        cache.put("de", "en", new Translation("auto"));
+
+        assertTrue(cache.getStale("de", "en", "haus").isPresent());
+        assertTrue(cache.getStale("de", "en", "baum").isEmpty());
+    }
+
+    private static Translation haus() {
+        return new Translation("haus", List.of("Haus {n}", "Heim {n}"), List.of("house", "home"));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        var bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,88 @@
+#!/bin/bash
+#
+# Measures the startup of the JVM- and the native build: time-to-first-output (wall-clock time until the process
+# printed its answer and exited) and the peak RSS - averaged over a few runs. The lookup is answered from the cache
+# (or an imported offline dictionary) so the network doesn't blur the numbers. Runs on Linux and macOS - the clock is
+# read via perl (date +%s%N is GNU only), the peak RSS comes from time (GNU and BSD report it differently, without
+# /usr/bin/time it's reported as 0).
+#   ./startup.sh                    # measure both builds and diff against the baseline
+#   ./startup.sh --baseline         # measure both builds and record the results as new baseline
+#   RUNS=20 ./startup.sh Haus       # more runs and another query term
+#
+BASELINE=src/jmh/startup-baseline.csv
+RESULT=target/startup-result.csv
+RSS=target/startup-rss.txt
+RUNS=${RUNS:-10}
+
+RECORD=false
+if [ "$1" == "--baseline" ]; then
+  RECORD=true
+  shift
+fi
+TERM_TO_TRANSLATE=${1:-running}
+
+JVM="java -jar target/quarkus-app/quarkus-run.jar"
+NATIVE="target/dict"
+
+# the wall-clock time in millis
+now() {
+  perl -MTime::HiRes=time -e 'printf "%d\n", time * 1000'
+}
+
+# runs the given command and writes its peak RSS (in kB) to $RSS - GNU time reports kB, the one of macOS bytes
+with_peak_rss() {
+  case "$(uname -s)" in
+    Darwin)
+      /usr/bin/time -l "$@" 2> $RSS.raw
+      awk '/maximum resident set size/ { print int($1 / 1024) }' $RSS.raw > $RSS ;;
+    *)
+      if [ -x /usr/bin/time ]; then
+        /usr/bin/time -f "%M" -o $RSS "$@" 2> /dev/null
+      else
+        "$@" 2> /dev/null
+        echo 0 > $RSS
+      fi ;;
+  esac
+}
+
+# prints "<millis> <rss in kB>" for a single invocation of the given command
+measure() {
+  local start end rss
+  start=$(now)
+  with_peak_rss $1 --no-server -o json "$TERM_TO_TRANSLATE" > /dev/null
+  end=$(now)
+  rss=$(tail -1 $RSS)
+  echo "$(( end - start )) ${rss:-0}"
+}
+
+echo "build,time-to-first-output (ms),max rss (kB)" > $RESULT
+for build in jvm native; do
+  if [ "$build" == "jvm" ]; then cmd=$JVM; binary=target/quarkus-app/quarkus-run.jar; else cmd=$NATIVE; binary=$NATIVE; fi
+  if [ ! -f "$binary" ]; then
+    echo "Skipping $build - $binary doesn't exist (see buildAll.sh)"
+    continue
+  fi
+
+  $cmd --no-server "$TERM_TO_TRANSLATE" > /dev/null 2>&1       # warms the cache (and the file-system cache)
+  for ((i = 0; i < RUNS; i++)); do measure "$cmd"; done \
+    | awk -v build=$build '{ millis += $1; if ($2 > rss) rss = $2 } END { printf "%s,%.1f,%d\n", build, millis / NR, rss }' >> $RESULT
+done
+column -t -s ',' $RESULT 2> /dev/null || tr ',' '\t' < $RESULT
+
+if [ "$RECORD" == "true" ]; then
+  cp $RESULT $BASELINE
+  echo "Recorded new baseline in $BASELINE"
+elif [ -f $BASELINE ]; then
+  echo
+  echo "Comparison with $BASELINE (baseline -> current)"
+  awk -F',' '
+    FNR == 1 { next }
+    NR == FNR { millis[$1] = $2; rss[$1] = $3; next }
+    ($1 in millis) && millis[$1] > 0 {
+      printf "%-8s %8.1f -> %8.1f ms (%+.1f%%)", $1, millis[$1], $2, ($2 - millis[$1]) * 100 / millis[$1]
+      if (rss[$1] > 0 && $3 > 0) {
+        printf "   %8d -> %8d kB (%+.1f%%)", rss[$1], $3, ($3 - rss[$1]) * 100 / rss[$1]
+      }
+      printf "\n"
+    }' $BASELINE $RESULT
+fi